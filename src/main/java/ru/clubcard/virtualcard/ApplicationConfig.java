@@ -4,8 +4,23 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import io.swagger.v3.oas.annotations.ExternalDocumentation;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Info;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import ru.clubcard.virtualcard.cache.ImageCache;
+import ru.clubcard.virtualcard.entity.card.VirtualCard;
+import ru.clubcard.virtualcard.entity.qrcode.QRCode;
+import ru.clubcard.virtualcard.index.LiveIdFilter;
+import ru.clubcard.virtualcard.repository.PooledIdAllocator;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @OpenAPIDefinition(info = @Info(title = "T1-VirtualCard",
@@ -16,4 +31,50 @@ public class ApplicationConfig {
     public QRCodeWriter qrCodeWriter() {
         return new QRCodeWriter();
     }
+
+    @Bean
+    public ImageCache qrCodeImageCache(@Value("${clubcard.qr-code.image-cache.max-bytes}") long maxBytes) {
+        return new ImageCache(maxBytes);
+    }
+
+    @Bean
+    public ImageCache virtualCardRenderCache(@Value("${clubcard.virtual-card.render.cache.max-bytes}") long maxBytes) {
+        return new ImageCache(maxBytes);
+    }
+
+    @Bean
+    public LiveIdFilter qrCodeIdFilter(@Value("${clubcard.id-filter.enabled}") boolean enabled,
+                                       @Value("${clubcard.id-filter.false-positive-rate}") double falsePositiveRate) {
+        return new LiveIdFilter(enabled, falsePositiveRate);
+    }
+
+    @Bean
+    public LiveIdFilter virtualCardIdFilter(@Value("${clubcard.id-filter.enabled}") boolean enabled,
+                                            @Value("${clubcard.id-filter.false-positive-rate}") double falsePositiveRate) {
+        return new LiveIdFilter(enabled, falsePositiveRate);
+    }
+
+    @Bean
+    public PooledIdAllocator qrCodeIdAllocator(JdbcTemplate jdbcTemplate,
+                                               @Value("${clubcard.id-allocator.max-block-age}") Duration maxBlockAge) {
+        return new PooledIdAllocator(jdbcTemplate, "virtualcard.qrcode_id_seq", QRCode.ID_ALLOCATION_SIZE, maxBlockAge);
+    }
+
+    @Bean
+    public PooledIdAllocator virtualCardIdAllocator(JdbcTemplate jdbcTemplate,
+                                                    @Value("${clubcard.id-allocator.max-block-age}") Duration maxBlockAge) {
+        return new PooledIdAllocator(jdbcTemplate, "virtualcard.virtual_card_id_seq", VirtualCard.ID_ALLOCATION_SIZE, maxBlockAge);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool qrCodeRenderPool(@Value("${clubcard.qr-code.batch.parallelism}") int parallelism) {
+        return new ForkJoinPool(parallelism);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageDerivativePool(@Value("${clubcard.image-store.derivative.parallelism}") int parallelism,
+                                               @Value("${clubcard.image-store.derivative.queue-capacity}") int queueCapacity) {
+        return new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-derivative-"));
+    }
 }
@@ -2,8 +2,10 @@ package ru.clubcard.virtualcard;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class T1VirtualCardApplication {
     public static void main(String[] args) {
         SpringApplication.run(T1VirtualCardApplication.class, args);
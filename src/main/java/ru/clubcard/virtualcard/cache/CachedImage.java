@@ -0,0 +1,12 @@
+package ru.clubcard.virtualcard.cache;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+import java.time.Instant;
+
+public record CachedImage(byte[] bytes, MediaType mediaType, String eTag, Instant expiresAt) {
+    public static CachedImage of(byte[] bytes, MediaType mediaType, Instant expiresAt) {
+        return new CachedImage(bytes, mediaType, DigestUtils.md5DigestAsHex(bytes), expiresAt);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.clubcard.virtualcard.cache;
+
+import ru.clubcard.virtualcard.entity.card.VirtualCard;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+
+import java.time.Instant;
+
+/**
+ * Mapped Virtual Card with its validators, shared between requests and never modified.
+ */
+public record CachedVirtualCard(VirtualCardDTO virtualCard, String eTag, Instant lastModified) {
+    public static CachedVirtualCard of(VirtualCard virtualCard, VirtualCardMapper virtualCardMapper) {
+        return new CachedVirtualCard(virtualCardMapper.toDTO(virtualCard), eTag(virtualCard), virtualCard.getLastModified());
+    }
+
+    public static String eTag(VirtualCard virtualCard) {
+        return virtualCard.getVersion() == null ? null : String.valueOf(virtualCard.getVersion());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.clubcard.virtualcard.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of rendered image bytes. Entries are grouped by owner id (QR Code or Virtual Card),
+ * so all variants (size, format) of one owner are evicted together.
+ */
+public class ImageCache {
+    private final Cache<Long, Map<String, CachedImage>> cache;
+
+    public ImageCache(long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, Map<String, CachedImage> variants) -> variants.values().stream()
+                        .mapToInt(image -> image.bytes().length)
+                        .sum())
+                .expireAfter(new VariantsExpiry())
+                .build();
+    }
+
+    public CachedImage get(long id, String variant) {
+        Map<String, CachedImage> variants = cache.getIfPresent(id);
+        return variants == null ? null : variants.get(variant);
+    }
+
+    public void put(long id, String variant, CachedImage image) {
+        cache.asMap().compute(id, (key, variants) -> {
+            Map<String, CachedImage> updated = variants == null ? new HashMap<>() : new HashMap<>(variants);
+            updated.put(variant, image);
+            return Map.copyOf(updated);
+        });
+    }
+
+    public void evict(long id) {
+        cache.invalidate(id);
+    }
+
+    public void evictAll(Iterable<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    private static class VariantsExpiry implements Expiry<Long, Map<String, CachedImage>> {
+        private static final Duration MAX_TTL = Duration.ofDays(36500);
+
+        @Override
+        public long expireAfterCreate(Long id, Map<String, CachedImage> variants, long currentTime) {
+            Instant expiresAt = variants.values().stream()
+                    .map(CachedImage::expiresAt)
+                    .min(Instant::compareTo)
+                    .orElse(Instant.MAX);
+
+            Duration ttl = Duration.between(Instant.now(), expiresAt);
+            if (ttl.isNegative()) {
+                return 0;
+            }
+
+            return ttl.compareTo(MAX_TTL) > 0 ? Long.MAX_VALUE : ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long id, Map<String, CachedImage> variants, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, variants, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long id, Map<String, CachedImage> variants, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.clubcard.virtualcard.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.clubcard.virtualcard.entity.card.VirtualCard;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of mapped Virtual Cards for getCard and QR Code checks, loaded from the read table when it is
+ * enabled and from the JOINED tables otherwise. Missing cards are not cached.
+ * Writers must call {@link #evict(long)}, the TTL only bounds staleness from writes made by other instances.
+ */
+@Component
+public class VirtualCardCache {
+    private final LoadingCache<Long, CachedVirtualCard> cache;
+
+    public VirtualCardCache(VirtualCardRepository virtualCardRepository, VirtualCardReadRepository virtualCardReadRepository,
+                            VirtualCardMapper virtualCardMapper,
+                            @Value("${clubcard.virtual-card.cache.max-size}") long maxSize,
+                            @Value("${clubcard.virtual-card.cache.ttl}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public CachedVirtualCard load(Long id) {
+                        return (virtualCardReadRepository.isEnabled() ? virtualCardReadRepository.findById(id) : virtualCardRepository.findById(id))
+                                .map(virtualCard -> CachedVirtualCard.of(virtualCard, virtualCardMapper))
+                                .orElse(null);
+                    }
+
+                    @Override
+                    public Map<Long, CachedVirtualCard> loadAll(Set<? extends Long> ids) {
+                        List<? extends VirtualCard> virtualCards = virtualCardReadRepository.isEnabled()
+                                ? virtualCardReadRepository.findAllById(Set.copyOf(ids))
+                                : virtualCardRepository.findAllById(Set.copyOf(ids));
+                        return virtualCards.stream()
+                                .collect(Collectors.toMap(VirtualCard::getId, virtualCard -> CachedVirtualCard.of(virtualCard, virtualCardMapper)));
+                    }
+                });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "virtual-card");
+    }
+
+    public CachedVirtualCard get(long id) {
+        return cache.get(id);
+    }
+
+    public Map<Long, CachedVirtualCard> getAll(Set<Long> ids) {
+        return cache.getAll(ids);
+    }
+
+    /**
+     * Evicts now and once more when the surrounding transaction completes, so a read that loaded
+     * the not yet committed state in between is not kept.
+     */
+    public void evict(long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+}
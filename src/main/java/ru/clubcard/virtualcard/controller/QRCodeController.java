@@ -2,13 +2,16 @@ package ru.clubcard.virtualcard.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -16,8 +19,13 @@ import org.springframework.web.bind.annotation.*;
 import ru.clubcard.virtualcard.entity.card.dto.ColorBasedVirtualCardDTO;
 import ru.clubcard.virtualcard.entity.card.dto.ImageBasedVirtualCardDTO;
 import ru.clubcard.virtualcard.entity.qrcode.QRCode;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeCheckResultDTO;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeScanDTO;
+import ru.clubcard.virtualcard.image.QRCodeImageFormat;
 import ru.clubcard.virtualcard.service.QRCodeService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/qr-code")
 @RequiredArgsConstructor
@@ -48,21 +56,79 @@ public class QRCodeController {
         return qrCodeService.generate(virtualCardId, isDisposable);
     }
 
-    @Operation(summary = "Get image of QR Code")
+    @Operation(summary = "Create QR Codes in bulk")
     @ApiResponse(responseCode = "200", description = "OK",
             content = @Content(
-                    mediaType = MediaType.IMAGE_JPEG_VALUE))
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"QR Codes generated.\", \"ids\": [ 1, 2, 3 ] }")))
+    @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Either Virtual Card IDs or Virtual Card ID must be present.\" }")))
+    @ApiResponse(responseCode = "404", description = "Not Found",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Virtual Card not found.\", \"ids\": [ 4 ] }")))
+    @PostMapping("/post/batch")
+    public ResponseEntity<?> postQRCodes(
+            @Parameter(description = "IDs of Virtual Cards, each gets count QR Codes")
+            @RequestBody(required = false) List<Long> virtualCardIds,
+            @Parameter(description = "ID of Virtual Card to create count QR Codes for")
+            @RequestParam(required = false) Long virtualCardId,
+            @Parameter(description = "Number of QR Codes per Virtual Card")
+            @RequestParam(defaultValue = "1") int count,
+            @Parameter(description = "Are new QR Codes disposable (For single use)")
+            @NotNull @RequestParam boolean isDisposable) {
+        return qrCodeService.generateBatch(virtualCardIds, virtualCardId, count, isDisposable);
+    }
+
+    @Operation(summary = "Get image of QR Code")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = {
+                    @Content(mediaType = MediaType.IMAGE_PNG_VALUE),
+                    @Content(mediaType = "image/svg+xml"),
+                    @Content(mediaType = "image/bmp"),
+                    @Content(mediaType = MediaType.IMAGE_JPEG_VALUE)})
+    @ApiResponse(responseCode = "304", description = "Not Modified",
+            content = @Content())
     @ApiResponse(responseCode = "400", description = "Bad Request",
             content = @Content())
     @ApiResponse(responseCode = "404", description = "Not Found",
             content = @Content())
     @ApiResponse(responseCode = "500", description = "Internal Server Error",
             content = @Content())
-    @GetMapping(value = "/get-image/{qrCodeId}", produces = MediaType.IMAGE_JPEG_VALUE)
+    @GetMapping(value = "/get-image/{qrCodeId}", produces = {MediaType.IMAGE_PNG_VALUE, "image/svg+xml", "image/bmp", MediaType.IMAGE_JPEG_VALUE})
     public ResponseEntity<?> getQRCode(
             @Parameter(description = "ID of QR Code")
-            @NotNull @PathVariable Long qrCodeId) {
-        return qrCodeService.get(qrCodeId);
+            @NotNull @PathVariable Long qrCodeId,
+            @Parameter(description = "Image format (png, svg, bmp, jpeg). Overrides Accept header, JPEG by default")
+            @RequestParam(required = false) String format,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return qrCodeService.get(qrCodeId, QRCodeImageFormat.resolve(format, accept));
+    }
+
+    @Operation(summary = "Get ZIP archive of QR Code images")
+    @ApiResponse(responseCode = "200", description = "OK, IDs of QR Codes that failed to render are listed in failed-ids.txt",
+            content = @Content(
+                    mediaType = "application/zip"))
+    @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Either QR Code IDs or Virtual Card ID must be present.\" }")))
+    @ApiResponse(responseCode = "404", description = "Not Found",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Virtual Card not found.\" }")))
+    @PostMapping("/get-image/batch")
+    public ResponseEntity<?> getQRCodes(
+            @Parameter(description = "IDs of QR Codes")
+            @RequestBody(required = false) List<Long> qrCodeIds,
+            @Parameter(description = "ID of Virtual Card to export all QR Codes of")
+            @RequestParam(required = false) Long virtualCardId,
+            @Parameter(description = "Image format (png, svg, bmp, jpeg), JPEG by default")
+            @RequestParam(required = false) String format) {
+        return qrCodeService.getBatch(qrCodeIds, virtualCardId, QRCodeImageFormat.resolve(format, null));
     }
 
     @Operation(summary = "Get QR Code Info")
@@ -97,8 +163,12 @@ public class QRCodeController {
     @GetMapping("/get-info/all/{virtualCardId}")
     public ResponseEntity<?> getAllInfo(
             @Parameter(description = "ID of Virtual Card")
-            @NotNull @PathVariable Long virtualCardId) {
-        return qrCodeService.getAllInfo(virtualCardId);
+            @NotNull @PathVariable Long virtualCardId,
+            @Parameter(description = "ID of the last QR Code of the previous page, absent for the first page")
+            @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Page size, all QR Codes by default")
+            @Positive @RequestParam(required = false) Integer limit) {
+        return qrCodeService.getAllInfo(virtualCardId, afterId, limit);
     }
 
     @Operation(summary = "Check Virtual Card by QR Code")
@@ -125,6 +195,42 @@ public class QRCodeController {
         return qrCodeService.check(qrCodeId);
     }
 
+    @Operation(summary = "Check batch of buffered QR Code scans")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = QRCodeCheckResultDTO.class))))
+    @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Batch must contain from 1 to 1000 scans.\" }")))
+    @PostMapping("/check/batch")
+    public ResponseEntity<?> checkQRCodes(
+            @Parameter(description = "QR Code scans with scan time, results are returned in the same order")
+            @RequestBody List<QRCodeScanDTO> scans) {
+        return qrCodeService.checkBatch(scans);
+    }
+
+    @Operation(summary = "Check Virtual Card by signed QR Code token")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(oneOf = {ColorBasedVirtualCardDTO.class, ImageBasedVirtualCardDTO.class})))
+    @ApiResponse(responseCode = "403", description = "Forbidden",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"QR Code expired!\" }")))
+    @ApiResponse(responseCode = "404", description = "Not Found",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"QR Code not found.\" }")))
+    @GetMapping("/check-token/{token}")
+    public ResponseEntity<?> checkQRCodeToken(
+            @Parameter(description = "Signed QR Code token (contents of QR Code image in token mode)")
+            @NotNull @PathVariable String token) {
+        return qrCodeService.checkToken(token);
+    }
+
     @Operation(summary = "Delete the QR Code")
     @ApiResponse(responseCode = "200", description = "OK",
             content = @Content(
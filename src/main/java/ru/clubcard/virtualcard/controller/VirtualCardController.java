@@ -9,17 +9,25 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.clubcard.virtualcard.entity.card.CardPrivilege;
+import ru.clubcard.virtualcard.entity.card.CardStatus;
 import ru.clubcard.virtualcard.entity.card.dto.ColorBasedVirtualCardDTO;
 import ru.clubcard.virtualcard.entity.card.dto.ImageBasedVirtualCardDTO;
 import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardSummaryPageDTO;
 import ru.clubcard.virtualcard.service.VirtualCardService;
 
+import java.io.InputStream;
+import java.util.List;
+
 @RestController
 @RequestMapping("/virtual-card")
 @RequiredArgsConstructor
@@ -28,6 +36,30 @@ import ru.clubcard.virtualcard.service.VirtualCardService;
 public class VirtualCardController {
     private final VirtualCardService virtualCardService;
 
+    @Operation(summary = "List Virtual Cards of User, ordered by ID")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = VirtualCardSummaryPageDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Limit must be from 1 to 500.\" }")))
+    @GetMapping
+    public ResponseEntity<?> listCards(
+            @Parameter(description = "ID of User owning Virtual Cards")
+            @NotNull @RequestParam Long userId,
+            @Parameter(description = "Only Virtual Cards with this status")
+            @RequestParam(required = false) CardStatus status,
+            @Parameter(description = "Only Virtual Cards with this privilege")
+            @RequestParam(required = false) CardPrivilege privilege,
+            @Parameter(description = "nextAfterId of the previous page, absent for the first page")
+            @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Page size, 50 by default")
+            @Positive @RequestParam(required = false) Integer limit) {
+        return virtualCardService.listCards(userId, status, privilege, afterId, limit);
+    }
+
     @Operation(summary = "Create new Virtual Card")
     @ApiResponse(responseCode = "200", description = "OK",
             content = @Content(
@@ -40,6 +72,22 @@ public class VirtualCardController {
         return virtualCardService.createCard(userId);
     }
 
+    @Operation(summary = "Create new Virtual Cards in bulk")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Virtual Cards created.\", \"ids\": [ 1, 2, 3 ] }")))
+    @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Batch must contain from 1 to 10000 User IDs.\" }")))
+    @PostMapping("/post/batch")
+    public ResponseEntity<?> postCards(
+            @Parameter(description = "IDs of Users, one Virtual Card is created for each, IDs are returned in the same order")
+            @RequestBody List<Long> userIds) {
+        return virtualCardService.createCards(userIds);
+    }
+
     @Operation(summary = "Save Image for Image Based Virtual Card")
     @ApiResponse(responseCode = "200", description = "OK",
             content = @Content(
@@ -58,17 +106,79 @@ public class VirtualCardController {
         return virtualCardService.saveImage(virtualCardId, image);
     }
 
+    @Operation(summary = "Upload Image for Image Based Virtual Card as raw request body",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    content = @Content(mediaType = "image/*", schema = @Schema(type = "string", format = "binary"))))
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = ImageBasedVirtualCardDTO.class)))
+    @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Some Bad Request message.\" }")))
+    @ApiResponse(responseCode = "413", description = "Image is too large",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Image must not exceed 10485760 bytes.\" }")))
+    @ApiResponse(responseCode = "415", description = "Image format is not supported",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Image must be JPEG, PNG, GIF or WEBP.\" }")))
+    @PostMapping(value = "/image/upload/{virtualCardId}", consumes = {
+            MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE, "image/webp",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> uploadImage(
+            @Parameter(description = "ID of Image Based Virtual Card")
+            @NotNull @PathVariable Long virtualCardId,
+            @Parameter(hidden = true) InputStream image) {
+        return virtualCardService.uploadImage(virtualCardId, image);
+    }
+
     @Operation(summary = "Get Image of Image Based Virtual Card")
     @ApiResponse(responseCode = "200", description = "OK",
             content = @Content(
-                    mediaType = MediaType.IMAGE_JPEG_VALUE))
+                    mediaType = "image/*"))
+    @ApiResponse(responseCode = "206", description = "Partial Content for a Range request",
+            content = @Content(
+                    mediaType = "image/*"))
+    @ApiResponse(responseCode = "304", description = "Not Modified, If-None-Match or If-Modified-Since matched",
+            content = @Content())
     @ApiResponse(responseCode = "400", description = "Bad Request",
             content = @Content())
-    @GetMapping(value = "/image/get/{virtualCardId}", produces = MediaType.IMAGE_JPEG_VALUE)
+    @GetMapping(value = "/image/get/{virtualCardId}", produces = {
+            MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE, "image/webp"})
     public ResponseEntity<?> getImage(
             @Parameter(description = "ID of Image Based Virtual Card")
-            @NotNull @PathVariable Long virtualCardId) {
-        return virtualCardService.getImage(virtualCardId);
+            @NotNull @PathVariable Long virtualCardId,
+            @Parameter(description = "Displayed width in CSS pixels, card width by default")
+            @Positive @RequestParam(required = false) Integer size,
+            @Parameter(description = "Device pixel ratio, 1 by default. Original image is returned when neither size nor dpr is given")
+            @Positive @RequestParam(required = false) Double dpr) {
+        return virtualCardService.getImage(virtualCardId, size, dpr);
+    }
+
+    @Operation(summary = "Render Virtual Card with its background, texts and optionally a QR Code")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(
+                    mediaType = "image/*"))
+    @ApiResponse(responseCode = "304", description = "Not Modified, If-None-Match matched",
+            content = @Content())
+    @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = @Content())
+    @ApiResponse(responseCode = "404", description = "Virtual Card or QR Code not found",
+            content = @Content())
+    @GetMapping(value = "/render/{virtualCardId}", produces = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE})
+    public ResponseEntity<?> renderCard(
+            @Parameter(description = "ID of Virtual Card")
+            @NotNull @PathVariable Long virtualCardId,
+            @Parameter(description = "Width in pixels, 400 by default")
+            @Positive @RequestParam(required = false) Integer width,
+            @Parameter(description = "png (default) or jpeg")
+            @RequestParam(required = false) String format,
+            @Parameter(description = "ID of a QR Code of this Virtual Card to draw on it")
+            @Positive @RequestParam(required = false) Long qrCodeId) {
+        return virtualCardService.renderCard(virtualCardId, width, format, qrCodeId);
     }
 
     @Operation(summary = "Get Virtual Card by ID")
@@ -84,6 +194,8 @@ public class VirtualCardController {
             content = @Content(
                     mediaType = MediaType.APPLICATION_JSON_VALUE,
                     examples = @ExampleObject("{ \"message\": \"Virtual Card not found.\" }")))
+    @ApiResponse(responseCode = "304", description = "Not Modified, If-None-Match or If-Modified-Since matched",
+            content = @Content())
     @GetMapping("/get")
     public ResponseEntity<?> getCard(
             @Parameter(description = "ID of Virtual Card")
@@ -104,9 +216,20 @@ public class VirtualCardController {
             content = @Content(
                     mediaType = MediaType.APPLICATION_JSON_VALUE,
                     examples = @ExampleObject("{ \"message\": \"Virtual Card not found.\" }")))
+    @ApiResponse(responseCode = "409", description = "Conflict, Virtual Card was modified concurrently",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Virtual Card was modified concurrently.\" }")))
+    @ApiResponse(responseCode = "412", description = "Precondition Failed, If-Match does not match the current ETag",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject("{ \"message\": \"Virtual Card was modified.\" }")))
     @PutMapping("/put")
-    public ResponseEntity<?> putCard(@Valid @RequestBody VirtualCardDTO request) {
-        return virtualCardService.putCard(request);
+    public ResponseEntity<?> putCard(
+            @Valid @RequestBody VirtualCardDTO request,
+            @Parameter(description = "ETag of the Virtual Card being replaced")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return virtualCardService.putCard(request, ifMatch);
     }
 
     @Operation(summary = "Patch update for Virtual Card")
@@ -7,7 +7,10 @@ import org.hibernate.annotations.OnDeleteAction;
 import ru.clubcard.virtualcard.entity.card.VirtualCard;
 import ru.clubcard.virtualcard.entity.qrcode.QRCode;
 
+import java.time.LocalDateTime;
+
 @Entity
+@Table(indexes = @Index(name = "virtual_cardqrcode_qr_code_id_idx", columnList = "qr_code_id"))
 @Getter
 @Setter
 @ToString
@@ -27,4 +30,13 @@ public class VirtualCardQRCode {
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "qr_code_id")
     private QRCode qrCode;
+
+    /**
+     * Copy of {@link QRCode#getExpireTime()}, partition key of the link table in the partitioned storage mode.
+     */
+    private LocalDateTime expireTime;
+
+    public VirtualCardQRCode(VirtualCard virtualCard, QRCode qrCode) {
+        this(virtualCard, qrCode, qrCode.getExpireTime());
+    }
 }
@@ -1,7 +1,7 @@
 package ru.clubcard.virtualcard.entity.card;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Lob;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
@@ -16,6 +16,11 @@ public class ImageBasedVirtualCard extends VirtualCard {
 
     private String imageURL;
 
-    @Lob
-    private byte[] image;
+    /**
+     * SHA-256 of the image file in {@link ru.clubcard.virtualcard.storage.ImageStore}.
+     */
+    @Column(length = 64)
+    private String imageHash;
+
+    private String imageContentType;
 }
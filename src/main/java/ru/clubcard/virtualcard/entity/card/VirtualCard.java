@@ -3,6 +3,10 @@ package ru.clubcard.virtualcard.entity.card;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
@@ -13,6 +17,11 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 @AllArgsConstructor
 public abstract class VirtualCard {
+    /**
+     * Must match INCREMENT BY of virtual_card_id_seq, IDs are handed out as pooled-lo blocks by {@code PooledIdAllocator}.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     private Long id;
 
@@ -21,8 +30,19 @@ public abstract class VirtualCard {
     private CardPrivilege privilege;
     private CardStatus status;
 
+    @Convert(converter = VirtualCardTextConverter.class)
     private VirtualCardText idText;
+    @Convert(converter = VirtualCardTextConverter.class)
     private VirtualCardText usernameText;
+    @Convert(converter = VirtualCardTextConverter.class)
     private VirtualCardText privilegeText;
+    @Convert(converter = VirtualCardTextConverter.class)
     private VirtualCardText roleText;
+
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
+    @UpdateTimestamp
+    private Instant lastModified;
 }
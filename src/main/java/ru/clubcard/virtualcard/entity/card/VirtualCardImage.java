@@ -0,0 +1,25 @@
+package ru.clubcard.virtualcard.entity.card;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import lombok.*;
+
+/**
+ * Legacy in-database image of {@link ImageBasedVirtualCard}, kept in its own table so that loading a card never
+ * reads the LOB. Rows are moved to the image store by {@link ru.clubcard.virtualcard.storage.ImageStoreMigration}.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VirtualCardImage {
+    @Id
+    private Long virtualCardId;
+
+    @Lob
+    @ToString.Exclude
+    private byte[] data;
+}
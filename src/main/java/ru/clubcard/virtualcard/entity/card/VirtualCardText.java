@@ -2,14 +2,22 @@ package ru.clubcard.virtualcard.entity.card;
 
 import lombok.*;
 
+import java.io.Serial;
 import java.io.Serializable;
 
 @Getter
 @Setter
 @ToString
+@EqualsAndHashCode
 @AllArgsConstructor
 @NoArgsConstructor
 public class VirtualCardText implements Serializable {
+    /**
+     * Computed value of the class as first stored, keeps legacy serialized rows readable, see {@link VirtualCardTextConverter}.
+     */
+    @Serial
+    private static final long serialVersionUID = 3472251036163997610L;
+
     private int pxSize;
     private boolean isBold;
 
@@ -0,0 +1,70 @@
+package ru.clubcard.virtualcard.entity.card;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stores {@link VirtualCardText} as {@value #LENGTH} fixed bytes: format, flags (bit 0 is bold), pixel size,
+ * X and Y as big-endian ints. Rows written before this converter hold Java-serialized objects, those are still
+ * read (see {@link #isLegacy(byte[])}) until {@code VirtualCardTextMigration} rewrites them.
+ */
+@Converter
+public class VirtualCardTextConverter implements AttributeConverter<VirtualCardText, byte[]> {
+    public static final int LENGTH = 14;
+
+    private static final byte FORMAT = 1;
+    private static final ObjectInputFilter LEGACY_FILTER = ObjectInputFilter.Config.createFilter(VirtualCardText.class.getName() + ";!*");
+
+    @Override
+    public byte[] convertToDatabaseColumn(VirtualCardText text) {
+        if (text == null) {
+            return null;
+        }
+
+        return ByteBuffer.allocate(LENGTH)
+                .put(FORMAT)
+                .put((byte) (text.isBold() ? 1 : 0))
+                .putInt(text.getPxSize())
+                .putInt(text.getPositionX())
+                .putInt(text.getPositionY())
+                .array();
+    }
+
+    @Override
+    public VirtualCardText convertToEntityAttribute(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        if (isLegacy(value)) {
+            return deserialize(value);
+        }
+        if (value.length != LENGTH || value[0] != FORMAT) {
+            throw new IllegalArgumentException("Unknown Virtual Card text encoding of " + value.length + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(value, 2, LENGTH - 2);
+        return new VirtualCardText(buffer.getInt(), (value[1] & 1) == 1, buffer.getInt(), buffer.getInt());
+    }
+
+    /**
+     * Java serialization stream magic, {@code 0xACED}.
+     */
+    public static boolean isLegacy(byte[] value) {
+        return value.length >= 2 && value[0] == (byte) 0xAC && value[1] == (byte) 0xED;
+    }
+
+    private static VirtualCardText deserialize(byte[] value) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value))) {
+            in.setObjectInputFilter(LEGACY_FILTER);
+            return (VirtualCardText) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("Unreadable serialized Virtual Card text", e);
+        }
+    }
+}
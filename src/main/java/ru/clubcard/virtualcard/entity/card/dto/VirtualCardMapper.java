@@ -13,11 +13,16 @@ public interface VirtualCardMapper {
     VirtualCardDTO toDTO(VirtualCard card);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
     void updateColorBased(ColorBasedVirtualCardDTO dto, @MappingTarget ColorBasedVirtualCard card);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
     @Mapping(target = "imageURL", ignore = true)
-    @Mapping(target = "image", ignore = true)
+    @Mapping(target = "imageHash", ignore = true)
+    @Mapping(target = "imageContentType", ignore = true)
     void updateImageBased(ImageBasedVirtualCardDTO dto, @MappingTarget ImageBasedVirtualCard card);
 
     default void updateVirtualCard(VirtualCardDTO dto, VirtualCard card) {
@@ -27,10 +32,33 @@ public interface VirtualCardMapper {
         }
     }
 
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
+    void replaceColorBased(ColorBasedVirtualCardDTO dto, @MappingTarget ColorBasedVirtualCard card);
+
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
+    @Mapping(target = "imageURL", ignore = true)
+    @Mapping(target = "imageHash", ignore = true)
+    @Mapping(target = "imageContentType", ignore = true)
+    void replaceImageBased(ImageBasedVirtualCardDTO dto, @MappingTarget ImageBasedVirtualCard card);
+
+    default void replaceVirtualCard(VirtualCardDTO dto, VirtualCard card) {
+        switch (dto.getType()) {
+            case COLOR_BASED -> replaceColorBased((ColorBasedVirtualCardDTO) dto, (ColorBasedVirtualCard) card);
+            case IMAGE_BASED -> replaceImageBased((ImageBasedVirtualCardDTO) dto, (ImageBasedVirtualCard) card);
+        }
+    }
+
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
     ColorBasedVirtualCard toColorBased(ColorBasedVirtualCardDTO dto);
 
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
     @Mapping(target = "imageURL", ignore = true)
-    @Mapping(target = "image", ignore = true)
+    @Mapping(target = "imageHash", ignore = true)
+    @Mapping(target = "imageContentType", ignore = true)
     ImageBasedVirtualCard toImageBased(ImageBasedVirtualCardDTO dto);
 
     default VirtualCard toVirtualCard(VirtualCardDTO dto) {
@@ -0,0 +1,12 @@
+package ru.clubcard.virtualcard.entity.card.dto;
+
+import ru.clubcard.virtualcard.entity.card.CardPrivilege;
+import ru.clubcard.virtualcard.entity.card.CardStatus;
+
+import java.time.Instant;
+
+/**
+ * Listing row, built from the base table only, use getCard for the full card.
+ */
+public record VirtualCardSummaryDTO(Long id, CardPrivilege privilege, CardStatus status, Long version, Instant lastModified) {
+}
@@ -0,0 +1,9 @@
+package ru.clubcard.virtualcard.entity.card.dto;
+
+import java.util.List;
+
+/**
+ * {@code nextAfterId} is the {@code afterId} of the next page, {@code null} on the last page.
+ */
+public record VirtualCardSummaryPageDTO(List<VirtualCardSummaryDTO> virtualCards, Long nextAfterId) {
+}
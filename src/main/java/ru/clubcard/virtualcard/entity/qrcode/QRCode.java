@@ -6,6 +6,7 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = @Index(name = "qrcode_expire_time_idx", columnList = "expireTime"))
 @Getter
 @Setter
 @ToString
@@ -13,8 +14,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class QRCode {
+    /**
+     * Must match INCREMENT BY of qrcode_id_seq, IDs are handed out as pooled-lo blocks by Hibernate and {@code PooledIdAllocator}.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "qrcode_id_seq")
+    @SequenceGenerator(name = "qrcode_id_seq", sequenceName = "qrcode_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private boolean isDisposable;
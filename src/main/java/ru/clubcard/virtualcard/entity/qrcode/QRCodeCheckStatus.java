@@ -0,0 +1,5 @@
+package ru.clubcard.virtualcard.entity.qrcode;
+
+public enum QRCodeCheckStatus {
+    OK, EXPIRED, NOT_FOUND, ALREADY_USED
+}
@@ -0,0 +1,20 @@
+package ru.clubcard.virtualcard.entity.qrcode;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedQRCode {
+    @Id
+    private Long qrCodeId;
+
+    private LocalDateTime expireTime;
+}
@@ -0,0 +1,9 @@
+package ru.clubcard.virtualcard.entity.qrcode.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
+import ru.clubcard.virtualcard.entity.qrcode.QRCodeCheckStatus;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record QRCodeCheckResultDTO(Long qrCodeId, QRCodeCheckStatus status, VirtualCardDTO virtualCard) {
+}
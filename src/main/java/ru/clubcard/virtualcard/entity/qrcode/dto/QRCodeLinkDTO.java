@@ -0,0 +1,6 @@
+package ru.clubcard.virtualcard.entity.qrcode.dto;
+
+import java.time.LocalDateTime;
+
+public record QRCodeLinkDTO(Long qrCodeId, Long virtualCardId, LocalDateTime expireTime, boolean isDisposable) {
+}
@@ -0,0 +1,9 @@
+package ru.clubcard.virtualcard.entity.qrcode.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scan buffered by a terminal, {@code scannedAt} is the moment the QR Code was scanned (now if absent).
+ */
+public record QRCodeScanDTO(Long qrCodeId, LocalDateTime scannedAt) {
+}
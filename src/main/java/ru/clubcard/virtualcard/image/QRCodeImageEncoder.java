@@ -0,0 +1,242 @@
+package ru.clubcard.virtualcard.image;
+
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes QR Code {@link BitMatrix} straight into bilevel (1 bit per pixel) PNG and BMP
+ * or into SVG paths without building an intermediate {@code BufferedImage}. Buffers are reused per thread.
+ */
+@Component
+public class QRCodeImageEncoder {
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int BMP_HEADER_SIZE = 14 + 40 + 2 * 4;
+
+    private static final byte[] SVG_OPEN = "<svg xmlns=\"http://www.w3.org/2000/svg\" shape-rendering=\"crispEdges\" viewBox=\"0 0 ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SVG_BACKGROUND = "\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path d=\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SVG_CLOSE = "\"/></svg>".getBytes(StandardCharsets.US_ASCII);
+
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public byte[] encode(BitMatrix bitMatrix, QRCodeImageFormat format) throws IOException {
+        Buffers local = buffers.get();
+        local.output.reset();
+
+        switch (format) {
+            case PNG -> writePng(bitMatrix, local.output);
+            case SVG -> writeSvg(bitMatrix, local.output);
+            case BMP -> writeBmp(bitMatrix, local.output);
+            case JPEG -> ImageIO.write(MatrixToImageWriter.toBufferedImage(bitMatrix), "JPEG", local.output);
+        }
+
+        return local.output.toByteArray();
+    }
+
+    public void writePng(BitMatrix bitMatrix, OutputStream out) throws IOException {
+        Buffers local = buffers.get();
+        int width = bitMatrix.getWidth();
+        int height = bitMatrix.getHeight();
+        int rowBytes = (width + 7) / 8;
+
+        byte[] raw = local.raw((rowBytes + 1) * height);
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+            raw[offset++] = 0;
+            packRow(local.row(bitMatrix, y), raw, offset, rowBytes);
+            offset += rowBytes;
+        }
+
+        out.write(PNG_SIGNATURE);
+
+        byte[] header = local.header;
+        writeIntBE(header, 0, width);
+        writeIntBE(header, 4, height);
+        header[8] = 1;
+        header[9] = 0;
+        header[10] = 0;
+        header[11] = 0;
+        header[12] = 0;
+        writeChunk(out, local, IHDR, header, 13);
+
+        Deflater deflater = local.deflater;
+        deflater.reset();
+        deflater.setInput(raw, 0, offset);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(local.chunk);
+            if (length > 0) {
+                writeChunk(out, local, IDAT, local.chunk, length);
+            }
+        }
+
+        writeChunk(out, local, IEND, local.chunk, 0);
+    }
+
+    public void writeBmp(BitMatrix bitMatrix, OutputStream out) throws IOException {
+        Buffers local = buffers.get();
+        int width = bitMatrix.getWidth();
+        int height = bitMatrix.getHeight();
+        int rowBytes = (width + 7) / 8;
+        int stride = (rowBytes + 3) & ~3;
+        int imageSize = stride * height;
+
+        byte[] header = local.header;
+        header[0] = 'B';
+        header[1] = 'M';
+        writeIntLE(header, 2, BMP_HEADER_SIZE + imageSize);
+        writeIntLE(header, 6, 0);
+        writeIntLE(header, 10, BMP_HEADER_SIZE);
+        writeIntLE(header, 14, 40);
+        writeIntLE(header, 18, width);
+        writeIntLE(header, 22, height);
+        header[26] = 1;
+        header[27] = 0;
+        header[28] = 1;
+        header[29] = 0;
+        writeIntLE(header, 30, 0);
+        writeIntLE(header, 34, imageSize);
+        writeIntLE(header, 38, 2835);
+        writeIntLE(header, 42, 2835);
+        writeIntLE(header, 46, 2);
+        writeIntLE(header, 50, 0);
+        writeIntLE(header, 54, 0x000000);
+        writeIntLE(header, 58, 0xFFFFFF);
+        out.write(header, 0, BMP_HEADER_SIZE);
+
+        byte[] raw = local.raw(stride);
+        for (int y = height - 1; y >= 0; y--) {
+            packRow(local.row(bitMatrix, y), raw, 0, rowBytes);
+            for (int i = rowBytes; i < stride; i++) {
+                raw[i] = 0;
+            }
+            out.write(raw, 0, stride);
+        }
+    }
+
+    /**
+     * Expects a matrix with one pixel per module (encoded with zero width and height), the
+     * {@code viewBox} makes the result scale to any size. Dark modules are merged into horizontal runs per row.
+     */
+    public void writeSvg(BitMatrix bitMatrix, OutputStream out) throws IOException {
+        Buffers local = buffers.get();
+        int width = bitMatrix.getWidth();
+        int height = bitMatrix.getHeight();
+
+        out.write(SVG_OPEN);
+        writeAscii(out, width);
+        out.write(' ');
+        writeAscii(out, height);
+        out.write(SVG_BACKGROUND);
+
+        for (int y = 0; y < height; y++) {
+            BitArray row = local.row(bitMatrix, y);
+            int x = row.getNextSet(0);
+            while (x < width) {
+                int end = row.getNextUnset(x);
+                int length = Math.min(end, width) - x;
+
+                out.write('M');
+                writeAscii(out, x);
+                out.write(' ');
+                writeAscii(out, y);
+                out.write('h');
+                writeAscii(out, length);
+                out.write('v');
+                out.write('1');
+                out.write('h');
+                out.write('-');
+                writeAscii(out, length);
+                out.write('z');
+
+                x = row.getNextSet(end);
+            }
+        }
+
+        out.write(SVG_CLOSE);
+    }
+
+    /**
+     * Packs one matrix row MSB-first with set (dark) modules written as 0, so that index 0 is black
+     * for both PNG grayscale and the BMP palette.
+     */
+    private static void packRow(BitArray row, byte[] target, int offset, int rowBytes) {
+        int[] bits = row.getBitArray();
+        for (int i = 0; i < rowBytes; i++) {
+            int word = Integer.reverse(bits[i >> 2]);
+            target[offset + i] = (byte) ~(word >>> (24 - ((i & 3) << 3)));
+        }
+    }
+
+    private static void writeChunk(OutputStream out, Buffers local, byte[] type, byte[] data, int length) throws IOException {
+        byte[] lengthBytes = local.lengthBytes;
+        writeIntBE(lengthBytes, 0, length);
+        out.write(lengthBytes, 0, 4);
+        out.write(type);
+        out.write(data, 0, length);
+
+        CRC32 crc = local.crc;
+        crc.reset();
+        crc.update(type);
+        crc.update(data, 0, length);
+        writeIntBE(lengthBytes, 0, (int) crc.getValue());
+        out.write(lengthBytes, 0, 4);
+    }
+
+    private static void writeAscii(OutputStream out, int value) throws IOException {
+        if (value >= 10) {
+            writeAscii(out, value / 10);
+        }
+        out.write('0' + value % 10);
+    }
+
+    private static void writeIntBE(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static void writeIntLE(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        target[offset + 2] = (byte) (value >>> 16);
+        target[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static class Buffers {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream(4096);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[BMP_HEADER_SIZE];
+        private final byte[] lengthBytes = new byte[4];
+        private final byte[] chunk = new byte[16 * 1024];
+        private BitArray row = new BitArray();
+        private byte[] raw = new byte[8 * 1024];
+
+        private BitArray row(BitMatrix bitMatrix, int y) {
+            row = bitMatrix.getRow(y, row);
+            return row;
+        }
+
+        private byte[] raw(int size) {
+            if (raw.length < size) {
+                raw = new byte[size];
+            }
+            return raw;
+        }
+    }
+}
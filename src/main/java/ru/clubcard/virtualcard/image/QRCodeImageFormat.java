@@ -0,0 +1,70 @@
+package ru.clubcard.virtualcard.image;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+@Getter
+@RequiredArgsConstructor
+public enum QRCodeImageFormat {
+    PNG(MediaType.IMAGE_PNG, "png", false),
+    SVG(MediaType.parseMediaType("image/svg+xml"), "svg", true),
+    BMP(MediaType.parseMediaType("image/bmp"), "bmp", false),
+    JPEG(MediaType.IMAGE_JPEG, "jpeg", false);
+
+    private final MediaType mediaType;
+    private final String extension;
+    private final boolean vector;
+
+    /**
+     * Format of clients that name no image type, the only format before content negotiation was added.
+     */
+    public static final QRCodeImageFormat DEFAULT = JPEG;
+
+    /**
+     * Resolves output format: explicit {@code format} parameter wins, otherwise the best
+     * supported type of the {@code Accept} header is used. No header or only wildcards give {@link #DEFAULT},
+     * a named type wins over a wildcard of the same quality.
+     */
+    public static QRCodeImageFormat resolve(String format, String accept) {
+        if (format != null && !format.isBlank()) {
+            for (QRCodeImageFormat value : values()) {
+                if (value.name().equals(format.toUpperCase(Locale.ROOT)) || value.extension.equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported QR Code image format: " + format);
+        }
+
+        if (accept == null || accept.isBlank()) {
+            return DEFAULT;
+        }
+
+        QRCodeImageFormat best = null;
+        double bestQuality = 0;
+        boolean bestIsWildcard = false;
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            boolean wildcard = mediaType.isWildcardType() || mediaType.isWildcardSubtype();
+            QRCodeImageFormat candidate = wildcard ? (mediaType.includes(DEFAULT.mediaType) ? DEFAULT : null) : fromMediaType(mediaType);
+            double quality = mediaType.getQualityValue();
+            if (candidate != null && (quality > bestQuality || (quality == bestQuality && bestIsWildcard && !wildcard))) {
+                best = candidate;
+                bestQuality = quality;
+                bestIsWildcard = wildcard;
+            }
+        }
+
+        return best == null ? DEFAULT : best;
+    }
+
+    private static QRCodeImageFormat fromMediaType(MediaType mediaType) {
+        for (QRCodeImageFormat value : values()) {
+            if (mediaType.includes(value.mediaType)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
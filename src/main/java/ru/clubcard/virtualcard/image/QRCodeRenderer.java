@@ -0,0 +1,41 @@
+package ru.clubcard.virtualcard.image;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class QRCodeRenderer {
+    private final QRCodeWriter qrCodeWriter;
+    private final QRCodeImageEncoder qrCodeImageEncoder;
+
+    @Value("${clubcard.qr-code.width}")
+    private int width;
+
+    @Value("${clubcard.qr-code.height}")
+    private int height;
+
+    public byte[] render(String contents, QRCodeImageFormat format) throws WriterException, IOException {
+        BitMatrix bitMatrix = qrCodeWriter.encode(contents, BarcodeFormat.QR_CODE, width(format), height(format));
+        return qrCodeImageEncoder.encode(bitMatrix, format);
+    }
+
+    public String variant(QRCodeImageFormat format) {
+        return width(format) + "x" + height(format) + "." + format.getExtension();
+    }
+
+    private int width(QRCodeImageFormat format) {
+        return format.isVector() ? 0 : width;
+    }
+
+    private int height(QRCodeImageFormat format) {
+        return format.isVector() ? 0 : height;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.clubcard.virtualcard.image;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+@Getter
+@RequiredArgsConstructor
+public enum VirtualCardImageFormat {
+    PNG(MediaType.IMAGE_PNG, "png"),
+    JPEG(MediaType.IMAGE_JPEG, "jpeg");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    public static VirtualCardImageFormat resolve(String format) {
+        if (format == null || format.isBlank()) {
+            return PNG;
+        }
+
+        for (VirtualCardImageFormat value : values()) {
+            if (value.name().equals(format.toUpperCase(Locale.ROOT)) || value.extension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported Virtual Card image format: " + format);
+    }
+}
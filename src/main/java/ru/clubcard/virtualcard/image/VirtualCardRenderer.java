@@ -0,0 +1,186 @@
+package ru.clubcard.virtualcard.image;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.clubcard.virtualcard.entity.card.*;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Draws a Virtual Card the way clients lay it out on a {@value #REFERENCE_WIDTH}x{@value #REFERENCE_HEIGHT} card:
+ * background color or image (scaled to cover), then the four text blocks and an optional QR Code.
+ * Text sizes and positions are reference pixels scaled to the requested width, a negative X or Y is measured
+ * from the right or bottom edge. Texts: card ID, User ID, privilege and status.
+ * <p>
+ * The canvas and output buffer are allocated per call: kept per request thread they would pin several MB of heap
+ * on each of them long after a burst of renders.
+ */
+@Component
+@RequiredArgsConstructor
+public class VirtualCardRenderer {
+    public static final int REFERENCE_WIDTH = 400;
+    public static final int REFERENCE_HEIGHT = 252;
+
+    private static final float JPEG_QUALITY = 0.9f;
+    private static final Map<EncodeHintType, Object> QR_HINTS = Map.of(EncodeHintType.MARGIN, 1);
+    private static final Map<String, Color> NAMED_COLORS = Arrays.stream(Color.class.getFields())
+            .filter(field -> Modifier.isStatic(field.getModifiers()) && field.getType() == Color.class)
+            .collect(Collectors.toMap(field -> field.getName().toLowerCase(Locale.ROOT), VirtualCardRenderer::constant, (a, b) -> a));
+
+    private final QRCodeWriter qrCodeWriter;
+
+    public byte[] render(VirtualCard virtualCard, BufferedImage backgroundImage, String qrCodeContents,
+                         int width, VirtualCardImageFormat format) throws WriterException, IOException {
+        int height = Math.round((float) width * REFERENCE_HEIGHT / REFERENCE_WIDTH);
+        BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        double scale = (double) width / REFERENCE_WIDTH;
+
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+            drawBackground(graphics, virtualCard, backgroundImage, width, height);
+
+            graphics.setColor(color(textColor(virtualCard), Color.BLACK));
+            drawText(graphics, virtualCard.getIdText(), String.valueOf(virtualCard.getId()), scale, width, height);
+            drawText(graphics, virtualCard.getUsernameText(), "User " + virtualCard.getUserId(), scale, width, height);
+            drawText(graphics, virtualCard.getPrivilegeText(), label(virtualCard.getPrivilege(), "CARD_PRIVILEGE_"), scale, width, height);
+            drawText(graphics, virtualCard.getRoleText(), label(virtualCard.getStatus(), "CARD_STATUS_"), scale, width, height);
+
+            if (qrCodeContents != null) {
+                drawQRCode(graphics, qrCodeContents, width, height);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format.name()).next();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format == VirtualCardImageFormat.JPEG) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(canvas, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private void drawBackground(Graphics2D graphics, VirtualCard virtualCard, BufferedImage backgroundImage, int width, int height) {
+        Color background = virtualCard instanceof ColorBasedVirtualCard colorBased
+                ? color(colorBased.getBackgroundColor(), Color.WHITE)
+                : Color.WHITE;
+        graphics.setColor(background);
+        graphics.fillRect(0, 0, width, height);
+
+        if (backgroundImage != null) {
+            // Cover: scale to fill the card, crop the overflow evenly
+            double cover = Math.max((double) width / backgroundImage.getWidth(), (double) height / backgroundImage.getHeight());
+            int drawWidth = (int) Math.ceil(backgroundImage.getWidth() * cover);
+            int drawHeight = (int) Math.ceil(backgroundImage.getHeight() * cover);
+            graphics.drawImage(backgroundImage, (width - drawWidth) / 2, (height - drawHeight) / 2, drawWidth, drawHeight, null);
+        }
+    }
+
+    private static void drawText(Graphics2D graphics, VirtualCardText text, String value, double scale, int width, int height) {
+        if (text == null || text.getPxSize() <= 0) {
+            return;
+        }
+
+        graphics.setFont(new Font(Font.SANS_SERIF, text.isBold() ? Font.BOLD : Font.PLAIN, (int) Math.max(1, Math.round(text.getPxSize() * scale))));
+        int textWidth = graphics.getFontMetrics().stringWidth(value);
+
+        int x = (int) Math.round(text.getPositionX() * scale);
+        int y = (int) Math.round(text.getPositionY() * scale);
+        graphics.drawString(value, x >= 0 ? x : width + x - textWidth, y >= 0 ? y : height + y);
+    }
+
+    /**
+     * QR Code in the right half of the card on a white quiet zone, modules drawn as whole pixels to stay scannable.
+     */
+    private void drawQRCode(Graphics2D graphics, String contents, int width, int height) throws WriterException {
+        BitMatrix bitMatrix = qrCodeWriter.encode(contents, BarcodeFormat.QR_CODE, 0, 0, QR_HINTS);
+        int modulePx = Math.max(1, (int) (height * 0.6) / bitMatrix.getWidth());
+        int side = modulePx * bitMatrix.getWidth();
+        int left = width - side - height / 10;
+        int top = (height - side) / 2;
+
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(left, top, side, side);
+        graphics.setColor(Color.BLACK);
+        for (int y = 0; y < bitMatrix.getHeight(); y++) {
+            for (int x = 0; x < bitMatrix.getWidth(); x++) {
+                if (bitMatrix.get(x, y)) {
+                    graphics.fillRect(left + x * modulePx, top + y * modulePx, modulePx, modulePx);
+                }
+            }
+        }
+    }
+
+    private static String textColor(VirtualCard virtualCard) {
+        if (virtualCard instanceof ColorBasedVirtualCard colorBased) {
+            return colorBased.getTextColor();
+        }
+        if (virtualCard instanceof ImageBasedVirtualCard imageBased) {
+            return imageBased.getTextColor();
+        }
+        return null;
+    }
+
+    private static String label(Enum<?> value, String prefix) {
+        return value == null ? "" : value.name().replace(prefix, "");
+    }
+
+    /**
+     * Accepts {@code #RRGGBB} and {@link Color} constant names in any case ({@code BLACK}, {@code orange}).
+     * Nothing is cached per value, so colors stored by clients can not grow the heap.
+     */
+    static Color color(String value, Color fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+
+        String key = value.trim().toLowerCase(Locale.ROOT);
+        if (!key.startsWith("#")) {
+            return NAMED_COLORS.getOrDefault(key, fallback);
+        }
+        try {
+            return Color.decode(key);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static Color constant(Field field) {
+        try {
+            return (Color) field.get(null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
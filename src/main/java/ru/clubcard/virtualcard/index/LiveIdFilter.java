@@ -0,0 +1,133 @@
+package ru.clubcard.virtualcard.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of existing IDs (QR Codes or Virtual Cards), answers "definitely absent" so that lookups of unknown IDs
+ * return 404 without a database round trip. Deletions are not tracked, deleted IDs simply fall through to the database
+ * until the next rebuild. IDs created on other application instances after a rebuild read them are not in the filter,
+ * so every ID at or above {@code recentFrom} of the snapshot is reported as possibly present. The loader passes the
+ * sequence position sampled by the previous rebuild: allocators drop blocks older than
+ * {@code clubcard.id-allocator.max-block-age}, so as long as that plus the longest transaction is shorter than
+ * {@code clubcard.id-filter.refresh-interval}, any ID committed after this rebuild started comes from a block
+ * handed out after that sample, whatever the batch sizes and the number of instances.
+ */
+public class LiveIdFilter {
+    private final boolean enabled;
+    private final double falsePositiveRate;
+
+    private volatile Snapshot snapshot;
+    private volatile Builder building;
+
+    public LiveIdFilter(boolean enabled, double falsePositiveRate) {
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean mightContain(Long id) {
+        if (id == null) {
+            return false;
+        }
+
+        Snapshot current = snapshot;
+        return current == null || id >= current.recentFrom || current.bits.mightContain(id);
+    }
+
+    public void add(long id) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            current.bits.add(id);
+        }
+
+        Builder next = building;
+        if (next != null) {
+            next.add(id);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a rebuild sized for {@code expectedIds}, IDs added meanwhile go to both current and new filter.
+     * IDs from {@code recentFrom} up are always possibly present in the new filter.
+     */
+    public Builder builder(long expectedIds, long recentFrom) {
+        Builder builder = new Builder(new Bits(Math.max(expectedIds, 1024), falsePositiveRate), recentFrom);
+        building = builder;
+        return builder;
+    }
+
+    public void replaceWith(Builder builder) {
+        snapshot = new Snapshot(builder.bits, builder.recentFrom);
+        building = null;
+    }
+
+    public static class Builder {
+        private final Bits bits;
+        private final long recentFrom;
+
+        private Builder(Bits bits, long recentFrom) {
+            this.bits = bits;
+            this.recentFrom = recentFrom;
+        }
+
+        public void add(long id) {
+            bits.add(id);
+        }
+    }
+
+    private record Snapshot(Bits bits, long recentFrom) {
+    }
+
+    /**
+     * Bit array with k probes derived by double hashing of the mixed ID.
+     */
+    private static class Bits {
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+
+        private Bits(long expectedIds, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-expectedIds * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.min((bits + 63) / 64, Integer.MAX_VALUE - 8));
+            this.size = (long) words.length() * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) size / expectedIds * Math.log(2)));
+        }
+
+        private void add(long id) {
+            long hash = mix(id);
+            long step = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * step, size);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+
+        private boolean mightContain(long id) {
+            long hash = mix(id);
+            long step = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * step, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long mix(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 32;
+            hash *= 0xD6E8FEB86659FD93L;
+            return hash ^ (hash >>> 32);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.clubcard.virtualcard.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.clubcard.virtualcard.repository.PooledIdAllocator;
+import ru.clubcard.virtualcard.repository.QRCodeRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Rebuilds QR Code and Virtual Card {@link LiveIdFilter}s on startup and periodically, so deleted IDs are dropped.
+ * Each rebuild samples the sequence position for the next one, the first filter after startup has no sample
+ * and reports every ID as possibly present.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LiveIdFilterLoader {
+    private final LiveIdFilter qrCodeIdFilter;
+    private final LiveIdFilter virtualCardIdFilter;
+    private final QRCodeRepository qrCodeRepository;
+    private final VirtualCardRepository virtualCardRepository;
+    private final PooledIdAllocator qrCodeIdAllocator;
+    private final PooledIdAllocator virtualCardIdAllocator;
+    private final Map<String, Long> sequencePositions = new ConcurrentHashMap<>();
+
+    @Value("${clubcard.id-filter.load-page-size}")
+    private int pageSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    @Scheduled(initialDelayString = "${clubcard.id-filter.refresh-interval}", fixedDelayString = "${clubcard.id-filter.refresh-interval}")
+    public void reload() {
+        load("QR Code", qrCodeIdFilter, qrCodeIdAllocator, qrCodeRepository.count(), qrCodeRepository::findIdsAfter);
+        load("Virtual Card", virtualCardIdFilter, virtualCardIdAllocator, virtualCardRepository.count(), virtualCardRepository::findIdsAfter);
+    }
+
+    private void load(String name, LiveIdFilter filter, PooledIdAllocator allocator, long count, BiFunction<Long, Pageable, List<Long>> findIdsAfter) {
+        if (!filter.isEnabled()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Long recentFrom = sequencePositions.put(name, allocator.position());
+        // Headroom for IDs created until the next rebuild
+        LiveIdFilter.Builder builder = filter.builder(count + count / 2, recentFrom == null ? Long.MIN_VALUE : recentFrom);
+
+        long afterId = 0;
+        List<Long> page;
+        do {
+            page = findIdsAfter.apply(afterId, PageRequest.of(0, pageSize));
+            page.forEach(builder::add);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1);
+            }
+        } while (page.size() == pageSize);
+
+        filter.replaceWith(builder);
+        log.info("{} ID filter loaded up to ID {} in {} ms", name, afterId, System.currentTimeMillis() - startTime);
+    }
+}
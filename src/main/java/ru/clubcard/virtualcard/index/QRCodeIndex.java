@@ -0,0 +1,244 @@
+package ru.clubcard.virtualcard.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory index of QR Codes used by check: QR Code ID -> Virtual Card ID, expire time (epoch seconds)
+ * and disposable flag. Open addressing over primitive arrays, readers are lock-free (optimistic reads).
+ * A miss is never authoritative, callers fall back to the database. A hit is not authoritative either: QR Codes
+ * deleted by other application instances stay here until the next reload, so callers confirm a hit against the
+ * database before accepting the code. The index holds at most {@code max-entries} QR Codes, new ones beyond that
+ * are simply not indexed.
+ */
+@Component
+public class QRCodeIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    // Guarded by lock, weak so a reload that failed before its swap is simply dropped
+    private final Set<Builder> reloading = Collections.newSetFromMap(new WeakHashMap<>());
+
+    @Value("${clubcard.qr-code.index.enabled}")
+    private boolean enabled = true;
+
+    @Value("${clubcard.qr-code.index.max-entries}")
+    private int maxEntries = Integer.MAX_VALUE;
+
+    public record Entry(long virtualCardId, long expireEpochSecond, boolean disposable) {
+        public boolean isExpired(long nowEpochSecond) {
+            return expireEpochSecond <= nowEpochSecond;
+        }
+    }
+
+    public Entry get(long qrCodeId) {
+        if (!enabled) {
+            return null;
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        Entry entry = table.get(qrCodeId);
+        if (lock.validate(stamp)) {
+            return entry;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return table.get(qrCodeId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public Entry put(long qrCodeId, long virtualCardId, long expireEpochSecond, boolean disposable) {
+        if (enabled) {
+            long stamp = lock.writeLock();
+            try {
+                if (table.size < maxEntries || table.get(qrCodeId) != null) {
+                    if (table.size + 1 > table.keys.length / 2) {
+                        table = table.resize(table.keys.length * 2);
+                    }
+                    table.put(qrCodeId, virtualCardId, expireEpochSecond, disposable);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        return new Entry(virtualCardId, expireEpochSecond, disposable);
+    }
+
+    public void remove(long qrCodeId) {
+        if (!enabled) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            table.remove(qrCodeId);
+            reloading.forEach(builder -> builder.removed.add(qrCodeId));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void removeAll(Iterable<Long> qrCodeIds) {
+        if (!enabled) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            qrCodeIds.forEach(table::remove);
+            reloading.forEach(builder -> qrCodeIds.forEach(builder.removed::add));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a detached index to be filled by a full reload and swapped in with {@link #replaceWith(QRCodeIndex.Builder)}.
+     * QR Codes removed from this index in between are removed from the builder right before the swap, since its
+     * snapshot may have been read before their deletion.
+     */
+    public Builder builder() {
+        Builder builder = new Builder(maxEntries);
+        long stamp = lock.writeLock();
+        try {
+            reloading.add(builder);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return builder;
+    }
+
+    public void replaceWith(Builder builder) {
+        long stamp = lock.writeLock();
+        try {
+            reloading.remove(builder);
+            builder.removed.forEach(builder.table::remove);
+            table = builder.table;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public static class Builder {
+        private final Set<Long> removed = new HashSet<>();
+        private final int maxEntries;
+        private Table table = new Table(INITIAL_CAPACITY);
+
+        private Builder(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public void put(long qrCodeId, long virtualCardId, long expireEpochSecond, boolean disposable) {
+            if (table.size >= maxEntries && table.get(qrCodeId) == null) {
+                return;
+            }
+            if (table.size + 1 > table.keys.length / 2) {
+                table = table.resize(table.keys.length * 2);
+            }
+            table.put(qrCodeId, virtualCardId, expireEpochSecond, disposable);
+        }
+    }
+
+    /**
+     * Linear probing table, key 0 marks an empty slot (QR Code IDs start from 1).
+     * Expire time and disposable flag are packed into a single long.
+     */
+    private static class Table {
+        private final long[] keys;
+        private final long[] virtualCardIds;
+        private final long[] meta;
+        private final int mask;
+        private int size;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            virtualCardIds = new long[capacity];
+            meta = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        private Entry get(long key) {
+            for (int i = slot(key), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                long current = keys[i];
+                if (current == key) {
+                    long packed = meta[i];
+                    return new Entry(virtualCardIds[i], packed >> 1, (packed & 1) == 1);
+                }
+                if (current == 0) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private void put(long key, long virtualCardId, long expireEpochSecond, boolean disposable) {
+            int i = slot(key);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            virtualCardIds[i] = virtualCardId;
+            meta[i] = expireEpochSecond << 1 | (disposable ? 1 : 0);
+        }
+
+        private void remove(long key) {
+            int i = slot(key);
+            while (keys[i] != key) {
+                if (keys[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+
+            // Backward shift deletion keeps probe chains intact without tombstones
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    virtualCardIds[gap] = virtualCardIds[j];
+                    meta[gap] = meta[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = 0;
+            size--;
+        }
+
+        private Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    resized.put(keys[i], virtualCardIds[i], meta[i] >> 1, (meta[i] & 1) == 1);
+                }
+            }
+            return resized;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
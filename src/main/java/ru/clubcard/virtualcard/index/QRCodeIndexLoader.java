@@ -0,0 +1,76 @@
+package ru.clubcard.virtualcard.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO;
+import ru.clubcard.virtualcard.repository.VirtualCardQRCodeRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Warms {@link QRCodeIndex} on startup and periodically rebuilds it, so QR Codes deleted
+ * by other application instances do not stay in the index longer than the refresh interval.
+ * Deletions on this instance during a rebuild are replayed on it before the swap. The refresh interval also bounds
+ * the one case left: a deletion removed from the index before the rebuild started but committed after its page was read.
+ * Check confirms index hits against the database, so a stale entry costs memory until the next rebuild, it is never
+ * accepted.
+ */
+@Component
+@Slf4j
+public class QRCodeIndexLoader {
+    private final QRCodeIndex qrCodeIndex;
+    private final VirtualCardQRCodeRepository virtualCardQRCodeRepository;
+
+    @Value("${clubcard.qr-code.index.load-page-size}")
+    private int pageSize;
+
+    public QRCodeIndexLoader(QRCodeIndex qrCodeIndex, VirtualCardQRCodeRepository virtualCardQRCodeRepository, MeterRegistry meterRegistry) {
+        this.qrCodeIndex = qrCodeIndex;
+        this.virtualCardQRCodeRepository = virtualCardQRCodeRepository;
+
+        Gauge.builder("clubcard.qr-code.index.size", qrCodeIndex, QRCodeIndex::size)
+                .description("QR Codes held by the in-memory index")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    @Scheduled(initialDelayString = "${clubcard.qr-code.index.refresh-interval}", fixedDelayString = "${clubcard.qr-code.index.refresh-interval}")
+    public void reload() {
+        if (!qrCodeIndex.isEnabled()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        QRCodeIndex.Builder builder = qrCodeIndex.builder();
+
+        long afterId = 0;
+        int loaded = 0;
+        List<QRCodeLinkDTO> page;
+        do {
+            page = virtualCardQRCodeRepository.findActiveLinks(afterId, now, PageRequest.of(0, pageSize));
+            for (QRCodeLinkDTO link : page) {
+                builder.put(link.qrCodeId(), link.virtualCardId(),
+                        link.expireTime().atZone(ZoneId.systemDefault()).toEpochSecond(), link.isDisposable());
+                afterId = link.qrCodeId();
+            }
+            loaded += page.size();
+        } while (page.size() == pageSize);
+
+        qrCodeIndex.replaceWith(builder);
+        log.info("QR Code index loaded {} entries in {} ms", loaded, System.currentTimeMillis() - startTime);
+    }
+}
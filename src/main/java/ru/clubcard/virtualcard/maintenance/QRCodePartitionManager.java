@@ -0,0 +1,106 @@
+package ru.clubcard.virtualcard.maintenance;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps partitions of QR Code tables (see schema-partitioned.sql) in {@code bucket-days} wide ranges of expire time:
+ * creates them ahead for every QR Code that can be issued before the next run and drops partitions that are
+ * entirely expired. Buckets are aligned to multiples of {@code bucket-days} since epoch, so runs on different
+ * application instances agree on the bounds.
+ */
+@Component
+@Profile("partitioned")
+@DependsOnDatabaseInitialization
+@RequiredArgsConstructor
+@Slf4j
+public class QRCodePartitionManager {
+    private static final List<String> TABLES = List.of("virtual_cardqrcode", "qrcode");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${clubcard.qr-code.default-expire-hours}")
+    private long expireHours;
+
+    @Value("${clubcard.qr-code.partition.bucket-days}")
+    private int bucketDays;
+
+    @Value("${clubcard.qr-code.partition.premake-buckets}")
+    private int premakeBuckets;
+
+    @PostConstruct
+    public void init() {
+        maintain();
+    }
+
+    @Scheduled(initialDelayString = "${clubcard.qr-code.partition.maintenance-interval}", fixedDelayString = "${clubcard.qr-code.partition.maintenance-interval}")
+    public void maintain() {
+        LocalDateTime now = LocalDateTime.now();
+        createAhead(now);
+        dropExpired(now);
+    }
+
+    private void createAhead(LocalDateTime now) {
+        LocalDate last = bucketStart(now.plusHours(expireHours).toLocalDate()).plusDays((long) bucketDays * premakeBuckets);
+        for (LocalDate from = bucketStart(now.toLocalDate()); !from.isAfter(last); from = from.plusDays(bucketDays)) {
+            for (String table : TABLES) {
+                try {
+                    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS virtualcard.%s_p%s PARTITION OF virtualcard.%s FOR VALUES FROM ('%s') TO ('%s')"
+                            .formatted(table, from.format(DateTimeFormatter.BASIC_ISO_DATE), table, from, from.plusDays(bucketDays)));
+                } catch (DataAccessException e) {
+                    log.warn("Could not create partition of {} from {}: {}", table, from, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void dropExpired(LocalDateTime now) {
+        for (String table : TABLES) {
+            List<Map<String, Object>> partitions = jdbcTemplate.queryForList("""
+                    SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+                    FROM pg_inherits i
+                    JOIN pg_class c ON c.oid = i.inhrelid
+                    JOIN pg_class p ON p.oid = i.inhparent
+                    JOIN pg_namespace n ON n.oid = p.relnamespace
+                    WHERE n.nspname = 'virtualcard' AND p.relname = ?""", table);
+
+            for (Map<String, Object> partition : partitions) {
+                Matcher matcher = UPPER_BOUND.matcher((String) partition.get("bound"));
+                if (!matcher.find() || LocalDateTime.parse(matcher.group(1).replace(' ', 'T')).isAfter(now)) {
+                    continue;
+                }
+
+                String name = (String) partition.get("name");
+                try {
+                    // Detaching concurrently avoids an exclusive lock on the parent table that would block check
+                    jdbcTemplate.execute("ALTER TABLE virtualcard.%s DETACH PARTITION virtualcard.%s CONCURRENTLY".formatted(table, name));
+                    jdbcTemplate.execute("DROP TABLE virtualcard.%s".formatted(name));
+                    log.info("Dropped expired partition {}", name);
+                } catch (DataAccessException e) {
+                    log.warn("Could not drop expired partition {}: {}", name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private LocalDate bucketStart(LocalDate date) {
+        return LocalDate.ofEpochDay(Math.floorDiv(date.toEpochDay(), bucketDays) * bucketDays);
+    }
+}
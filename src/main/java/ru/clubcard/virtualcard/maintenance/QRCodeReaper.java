@@ -0,0 +1,98 @@
+package ru.clubcard.virtualcard.maintenance;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.clubcard.virtualcard.cache.ImageCache;
+import ru.clubcard.virtualcard.index.QRCodeIndex;
+import ru.clubcard.virtualcard.repository.QRCodeRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes expired QR Codes in chunks of {@code batch-size}, each chunk in its own short transaction,
+ * sleeping {@code pause} between chunks and stopping after {@code max-chunks} until the next run.
+ */
+@Component
+@Slf4j
+public class QRCodeReaper {
+    private final QRCodeRepository qrCodeRepository;
+    private final QRCodeIndex qrCodeIndex;
+    private final ImageCache qrCodeImageCache;
+
+    private final Counter deleted;
+    private final Timer chunkTimer;
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+    private final AtomicLong lastRunChunks = new AtomicLong();
+
+    @Value("${clubcard.qr-code.reaper.enabled}")
+    private boolean enabled;
+
+    @Value("${clubcard.qr-code.reaper.batch-size}")
+    private int batchSize;
+
+    @Value("${clubcard.qr-code.reaper.pause}")
+    private Duration pause;
+
+    @Value("${clubcard.qr-code.reaper.max-chunks}")
+    private int maxChunks;
+
+    public QRCodeReaper(QRCodeRepository qrCodeRepository, QRCodeIndex qrCodeIndex, ImageCache qrCodeImageCache, MeterRegistry meterRegistry) {
+        this.qrCodeRepository = qrCodeRepository;
+        this.qrCodeIndex = qrCodeIndex;
+        this.qrCodeImageCache = qrCodeImageCache;
+
+        this.deleted = Counter.builder("clubcard.qr-code.reaper.deleted")
+                .description("Expired QR Codes deleted by the reaper")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("clubcard.qr-code.reaper.chunk")
+                .description("Time spent deleting one chunk of expired QR Codes")
+                .register(meterRegistry);
+        meterRegistry.gauge("clubcard.qr-code.reaper.last-run.deleted", lastRunDeleted);
+        meterRegistry.gauge("clubcard.qr-code.reaper.last-run.chunks", lastRunChunks);
+    }
+
+    @Scheduled(initialDelayString = "${clubcard.qr-code.reaper.interval}", fixedDelayString = "${clubcard.qr-code.reaper.interval}")
+    public void reap() {
+        if (!enabled) {
+            return;
+        }
+
+        long total = 0;
+        int chunks = 0;
+        while (chunks < maxChunks) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> qrCodeIds = chunkTimer.record(() -> qrCodeRepository.deleteExpired(now, batchSize));
+            chunks++;
+
+            qrCodeIndex.removeAll(qrCodeIds);
+            qrCodeImageCache.evictAll(qrCodeIds);
+            deleted.increment(qrCodeIds.size());
+            total += qrCodeIds.size();
+
+            if (qrCodeIds.size() < batchSize) {
+                break;
+            }
+
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        lastRunDeleted.set(total);
+        lastRunChunks.set(chunks);
+        if (total > 0) {
+            log.info("QR Code reaper deleted {} expired QR Codes in {} chunks", total, chunks);
+        }
+    }
+}
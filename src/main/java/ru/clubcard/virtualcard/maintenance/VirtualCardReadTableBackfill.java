@@ -0,0 +1,72 @@
+package ru.clubcard.virtualcard.maintenance;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
+
+/**
+ * Brings {@code virtual_card_read} up to date with the JOINED tables on startup while the read table is enabled:
+ * copies cards written while it was off (or before it existed) in ID ranges of {@code page-size} cards, then removes
+ * rows of deleted cards. A row is only replaced by a newer version, so a concurrent write is never rolled back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualCardReadTableBackfill {
+    private static final String PAGE_END = """
+            SELECT max(id) FROM (SELECT id FROM virtualcard.virtual_card WHERE id > ? ORDER BY id LIMIT ?) page""";
+
+    private static final String COPY = """
+            INSERT INTO virtualcard.virtual_card_read (id, type, user_id, privilege, status, id_text, username_text,
+                privilege_text, role_text, text_color, background_color, image_url, version, last_modified)
+            SELECT v.id, CASE WHEN i.id IS NULL THEN 0 ELSE 1 END, v.user_id, v.privilege, v.status, v.id_text, v.username_text,
+                v.privilege_text, v.role_text, COALESCE(i.text_color, c.text_color), c.background_color, i.image_url, v.version, v.last_modified
+            FROM virtualcard.virtual_card v
+            LEFT JOIN virtualcard.color_based_virtual_card c ON c.id = v.id
+            LEFT JOIN virtualcard.image_based_virtual_card i ON i.id = v.id
+            WHERE v.id > ? AND v.id <= ?
+            ON CONFLICT (id) DO UPDATE SET type = EXCLUDED.type, user_id = EXCLUDED.user_id, privilege = EXCLUDED.privilege,
+                status = EXCLUDED.status, id_text = EXCLUDED.id_text, username_text = EXCLUDED.username_text,
+                privilege_text = EXCLUDED.privilege_text, role_text = EXCLUDED.role_text, text_color = EXCLUDED.text_color,
+                background_color = EXCLUDED.background_color, image_url = EXCLUDED.image_url, version = EXCLUDED.version,
+                last_modified = EXCLUDED.last_modified
+            WHERE (COALESCE(virtual_card_read.version, -1), COALESCE(virtual_card_read.last_modified, '-infinity'))
+                < (COALESCE(EXCLUDED.version, -1), COALESCE(EXCLUDED.last_modified, '-infinity'))""";
+
+    private static final String DELETE_ORPHANS = """
+            DELETE FROM virtualcard.virtual_card_read r
+            WHERE NOT EXISTS (SELECT 1 FROM virtualcard.virtual_card v WHERE v.id = r.id)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VirtualCardReadRepository virtualCardReadRepository;
+
+    @Value("${clubcard.virtual-card.read-table.backfill.page-size}")
+    private int pageSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!virtualCardReadRepository.isEnabled()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int copied = 0;
+
+        long afterId = 0;
+        Long pageEnd;
+        while ((pageEnd = jdbcTemplate.queryForObject(PAGE_END, Long.class, afterId, pageSize)) != null) {
+            copied += jdbcTemplate.update(COPY, afterId, pageEnd);
+            afterId = pageEnd;
+        }
+        int deleted = jdbcTemplate.update(DELETE_ORPHANS);
+
+        if (copied > 0 || deleted > 0) {
+            log.info("Read table of Virtual Cards: {} rows copied, {} removed in {} ms", copied, deleted, System.currentTimeMillis() - startTime);
+        }
+    }
+}
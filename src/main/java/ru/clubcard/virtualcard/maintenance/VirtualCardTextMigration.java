@@ -0,0 +1,82 @@
+package ru.clubcard.virtualcard.maintenance;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.clubcard.virtualcard.entity.card.VirtualCardTextConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites Java-serialized Virtual Card texts into the {@link VirtualCardTextConverter} encoding on startup, a page of
+ * cards per batch. A card updated in between (version changed) is skipped, the update already wrote the new encoding.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualCardTextMigration {
+    private static final String SELECT_LEGACY = """
+            SELECT id, version, id_text, username_text, privilege_text, role_text FROM virtualcard.virtual_card
+            WHERE id > ? AND (substring(id_text FROM 1 FOR 2) = '\\xaced'::bytea
+                OR substring(username_text FROM 1 FOR 2) = '\\xaced'::bytea
+                OR substring(privilege_text FROM 1 FOR 2) = '\\xaced'::bytea
+                OR substring(role_text FROM 1 FOR 2) = '\\xaced'::bytea)
+            ORDER BY id LIMIT ?""";
+
+    private static final String UPDATE = """
+            UPDATE virtualcard.virtual_card SET id_text = ?, username_text = ?, privilege_text = ?, role_text = ?
+            WHERE id = ? AND version IS NOT DISTINCT FROM ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VirtualCardTextConverter virtualCardTextConverter = new VirtualCardTextConverter();
+
+    @Value("${clubcard.virtual-card.text-migration.page-size}")
+    private int pageSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        long startTime = System.currentTimeMillis();
+        int migrated = 0;
+
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            page = jdbcTemplate.query(SELECT_LEGACY, (rs, rowNum) -> new Object[]{
+                    recode(rs.getBytes("id_text")),
+                    recode(rs.getBytes("username_text")),
+                    recode(rs.getBytes("privilege_text")),
+                    recode(rs.getBytes("role_text")),
+                    rs.getLong("id"),
+                    rs.getObject("version")
+            }, afterId, pageSize);
+
+            if (!page.isEmpty()) {
+                for (int updated : jdbcTemplate.batchUpdate(UPDATE, new ArrayList<>(page))) {
+                    migrated += Math.max(updated, 0);
+                }
+                afterId = (long) page.get(page.size() - 1)[4];
+            }
+        } while (page.size() == pageSize);
+
+        if (migrated > 0) {
+            log.info("Rewrote texts of {} Virtual Cards in {} ms", migrated, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private byte[] recode(byte[] value) {
+        if (value == null || !VirtualCardTextConverter.isLegacy(value)) {
+            return value;
+        }
+        try {
+            return virtualCardTextConverter.convertToDatabaseColumn(virtualCardTextConverter.convertToEntityAttribute(value));
+        } catch (IllegalArgumentException e) {
+            log.warn("Virtual Card text left serialized: {}", e.getMessage());
+            return value;
+        }
+    }
+}
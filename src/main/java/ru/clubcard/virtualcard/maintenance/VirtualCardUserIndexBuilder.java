@@ -0,0 +1,54 @@
+package ru.clubcard.virtualcard.maintenance;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Builds the (user_id, id) index behind {@code VirtualCardRepository#findSummariesByUserId} on startup with
+ * CREATE INDEX CONCURRENTLY, so writes to virtual_card go on while it is built. Declared on the entity, Hibernate would
+ * create it with a blocking CREATE INDEX. schema.sql cannot build it either: it runs as a single transaction, before
+ * Hibernate creates the table. An index left invalid by an interrupted build is dropped and built again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualCardUserIndexBuilder {
+    private static final String SELECT_STATE = """
+            SELECT CASE WHEN i.indisvalid THEN 'VALID'
+                        WHEN EXISTS (SELECT 1 FROM pg_stat_progress_create_index p WHERE p.index_relid = i.indexrelid) THEN 'BUILDING'
+                        ELSE 'INVALID' END
+            FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = 'virtualcard' AND c.relname = 'virtual_card_user_id_id_idx'""";
+
+    private static final String DROP = "DROP INDEX CONCURRENTLY IF EXISTS virtualcard.virtual_card_user_id_id_idx";
+    private static final String CREATE = "CREATE INDEX CONCURRENTLY IF NOT EXISTS virtual_card_user_id_id_idx ON virtualcard.virtual_card (user_id, id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        try {
+            List<String> state = jdbcTemplate.queryForList(SELECT_STATE, String.class);
+            if (!state.isEmpty() && !state.get(0).equals("INVALID")) {
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            if (!state.isEmpty()) {
+                jdbcTemplate.execute(DROP);
+            }
+            jdbcTemplate.execute(CREATE);
+            log.info("Built virtual_card_user_id_id_idx in {} ms", System.currentTimeMillis() - startTime);
+        } catch (DataAccessException e) {
+            // Listing cards of a user still works without the index, the next start tries again
+            log.warn("virtual_card_user_id_id_idx was not built", e);
+        }
+    }
+}
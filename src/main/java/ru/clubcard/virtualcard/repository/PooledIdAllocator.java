@@ -0,0 +1,78 @@
+package ru.clubcard.virtualcard.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates IDs in blocks of {@code incrementSize} from a database sequence with the same INCREMENT BY,
+ * fetching all blocks of a request in one round trip. Uses pooled-lo semantics (value {@code v} owns IDs
+ * {@code [v, v + incrementSize)}), same as Hibernate with {@code hibernate.id.optimizer.pooled.preferred=pooled-lo},
+ * so both can share the sequence. Unused tail of the last block is skipped.
+ * <p>
+ * {@link #next()} hands out IDs of a cached block without locking, only refilling takes a lock and a round trip.
+ * A cached block older than {@code maxBlockAge} is dropped, so an ID is never handed out from a block fetched
+ * longer ago than that, which {@code LiveIdFilter} relies on.
+ */
+public class PooledIdAllocator {
+    private final JdbcTemplate jdbcTemplate;
+    private final String sql;
+    private final String positionSql;
+    private final int incrementSize;
+    private final long maxBlockAgeNanos;
+
+    private volatile Block block;
+
+    public PooledIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int incrementSize, Duration maxBlockAge) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sql = "SELECT nextval('" + sequenceName + "') FROM generate_series(1, ?)";
+        this.positionSql = "SELECT last_value FROM " + sequenceName;
+        this.incrementSize = incrementSize;
+        this.maxBlockAgeNanos = maxBlockAge.toNanos();
+    }
+
+    public long next() {
+        while (true) {
+            Block current = block;
+            if (current != null && System.nanoTime() - current.fetchedAt < maxBlockAgeNanos) {
+                long id = current.next.getAndIncrement();
+                if (id < current.end) {
+                    return id;
+                }
+            }
+
+            synchronized (this) {
+                if (block == current) {
+                    long start = allocate(1)[0];
+                    block = new Block(new AtomicLong(start + 1), start + incrementSize, System.nanoTime());
+                    return start;
+                }
+            }
+        }
+    }
+
+    public long[] allocate(int count) {
+        List<Long> blocks = jdbcTemplate.queryForList(sql, Long.class, (count + incrementSize - 1) / incrementSize);
+
+        long[] ids = new long[count];
+        int i = 0;
+        for (long start : blocks) {
+            for (int j = 0; j < incrementSize && i < count; j++) {
+                ids[i++] = start + j;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Start of the last block handed out by the sequence to any instance, blocks fetched later start above it.
+     */
+    public long position() {
+        return jdbcTemplate.queryForObject(positionSql, Long.class);
+    }
+
+    private record Block(AtomicLong next, long end, long fetchedAt) {
+    }
+}
@@ -0,0 +1,58 @@
+package ru.clubcard.virtualcard.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Plain JDBC batched inserts of QR Codes with their links, bypassing the persistence context for bulk generation.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QRCodeBatchRepository {
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts QR Codes {@code qrCodeIds[i]} linked to Virtual Cards {@code virtualCardIds[i]}.
+     */
+    public void insertAll(long[] qrCodeIds, long[] virtualCardIds, boolean isDisposable, LocalDateTime expireTime) {
+        for (int from = 0; from < qrCodeIds.length; from += BATCH_SIZE) {
+            int offset = from;
+            int size = Math.min(BATCH_SIZE, qrCodeIds.length - from);
+
+            jdbcTemplate.batchUpdate("INSERT INTO virtualcard.qrcode (id, is_disposable, expire_time) VALUES (?, ?, ?)", new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, qrCodeIds[offset + i]);
+                    ps.setBoolean(2, isDisposable);
+                    ps.setObject(3, expireTime);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+            jdbcTemplate.batchUpdate("INSERT INTO virtualcard.virtual_cardqrcode (virtual_card_id, qr_code_id, expire_time) VALUES (?, ?, ?)", new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, virtualCardIds[offset + i]);
+                    ps.setLong(2, qrCodeIds[offset + i]);
+                    ps.setObject(3, expireTime);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+}
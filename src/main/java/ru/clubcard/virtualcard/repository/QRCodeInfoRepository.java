@@ -0,0 +1,51 @@
+package ru.clubcard.virtualcard.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.clubcard.virtualcard.entity.qrcode.QRCode;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Reads QR Codes of a Virtual Card through a JDBC cursor. Rows are fetched {@code fetchSize} at a time
+ * only inside a transaction (PostgreSQL ignores fetch size in autocommit mode), the returned stream must be closed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QRCodeInfoRepository {
+    private static final String SELECT_BY_VIRTUAL_CARD_ID = """
+            SELECT q.id, q.is_disposable, q.expire_time
+            FROM virtualcard.virtual_cardqrcode l
+            JOIN virtualcard.qrcode q ON q.id = l.qr_code_id
+            WHERE l.virtual_card_id = ? AND l.qr_code_id > ?
+            ORDER BY l.qr_code_id""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${clubcard.qr-code.info.fetch-size}")
+    private int fetchSize;
+
+    /**
+     * QR Codes linked to the Virtual Card with ID greater than {@code afterId} in ID order, all of them when {@code limit} is null.
+     */
+    public Stream<QRCode> streamByVirtualCardId(long virtualCardId, long afterId, Integer limit) {
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement ps = connection.prepareStatement(limit == null ? SELECT_BY_VIRTUAL_CARD_ID : SELECT_BY_VIRTUAL_CARD_ID + " LIMIT ?");
+            ps.setFetchSize(limit == null ? fetchSize : Math.min(fetchSize, limit));
+            ps.setLong(1, virtualCardId);
+            ps.setLong(2, afterId);
+            if (limit != null) {
+                ps.setInt(3, limit);
+            }
+            return ps;
+        }, (rs, rowNum) -> QRCode.builder()
+                .id(rs.getLong(1))
+                .isDisposable(rs.getBoolean(2))
+                .expireTime(rs.getObject(3, LocalDateTime.class))
+                .build());
+    }
+}
@@ -1,9 +1,56 @@
 package ru.clubcard.virtualcard.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.clubcard.virtualcard.entity.qrcode.QRCode;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface QRCodeRepository extends JpaRepository<QRCode, Long> {
+    @Query("SELECT q.id FROM QRCode q WHERE q.id IN :ids ORDER BY q.id")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query("SELECT q.id FROM QRCode q WHERE q.id > :afterId ORDER BY q.id")
+    List<Long> findIdsAfter(Long afterId, Pageable pageable);
+
+    /**
+     * Deletes a QR Code with its links. Locks the qrcode row before touching the link, the same order as
+     * {@link #deleteExpired}, so the two never deadlock on each other's rows.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            WITH target AS (
+                SELECT id FROM virtualcard.qrcode WHERE id = :id FOR UPDATE
+            ), link AS (
+                DELETE FROM virtualcard.virtual_cardqrcode l USING target WHERE l.qr_code_id = target.id
+            )
+            DELETE FROM virtualcard.qrcode q USING target WHERE q.id = target.id""", nativeQuery = true)
+    int deleteWithLinksById(Long id);
+
+    /**
+     * Deletes up to {@code limit} QR Codes expired before {@code now} with their links. Rows locked by concurrent
+     * transactions (e.g. a check consuming the code) are skipped, so the statement never waits on them.
+     */
+    @Transactional
+    @Query(value = """
+            WITH expired AS (
+                SELECT id FROM virtualcard.qrcode
+                WHERE expire_time < :now
+                ORDER BY expire_time
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            ), link AS (
+                DELETE FROM virtualcard.virtual_cardqrcode l USING expired WHERE l.qr_code_id = expired.id
+            )
+            DELETE FROM virtualcard.qrcode q USING expired WHERE q.id = expired.id
+            RETURNING q.id""", nativeQuery = true)
+    List<Long> deleteExpired(LocalDateTime now, int limit);
 }
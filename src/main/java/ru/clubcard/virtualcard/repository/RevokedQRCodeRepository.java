@@ -0,0 +1,21 @@
+package ru.clubcard.virtualcard.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.clubcard.virtualcard.entity.qrcode.RevokedQRCode;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedQRCodeRepository extends JpaRepository<RevokedQRCode, Long> {
+    List<RevokedQRCode> findAllByExpireTimeAfter(LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedQRCode r WHERE r.expireTime <= :now")
+    int deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,44 @@
+package ru.clubcard.virtualcard.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.clubcard.virtualcard.entity.card.VirtualCard;
+
+import java.util.List;
+
+/**
+ * Persists new Virtual Cards with preassigned IDs. Unlike {@code save}, {@code persist} does not select the row first,
+ * and flushing every JDBC batch size lets Hibernate send one batched insert per JOINED table.
+ */
+@Repository
+public class VirtualCardBatchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private VirtualCardReadRepository virtualCardReadRepository;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    @Transactional
+    public <T extends VirtualCard> List<T> persistAll(List<T> virtualCards) {
+        for (int i = 0; i < virtualCards.size(); i++) {
+            entityManager.persist(virtualCards.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        if (virtualCardReadRepository.isEnabled()) {
+            entityManager.flush();
+            virtualCardReadRepository.saveAll(virtualCards);
+        }
+        return virtualCards;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.clubcard.virtualcard.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.clubcard.virtualcard.entity.card.VirtualCardImage;
+
+import java.util.List;
+
+@Repository
+public interface VirtualCardImageRepository extends JpaRepository<VirtualCardImage, Long> {
+    @Query("SELECT i.virtualCardId FROM VirtualCardImage i WHERE i.virtualCardId > :afterId ORDER BY i.virtualCardId")
+    List<Long> findIdsAfter(Long afterId, Pageable pageable);
+
+    /**
+     * Deletes the row together with its large object, which PostgreSQL does not unlink on its own. An object still
+     * referenced by the legacy image column is kept for instances of the previous release, see schema.sql.
+     */
+    @Transactional
+    @Query(value = """
+            WITH deleted AS (
+                DELETE FROM virtualcard.virtual_card_image WHERE virtual_card_id = :virtualCardId RETURNING virtual_card_id, data
+            )
+            SELECT COALESCE(sum(virtualcard.unlink_card_image(virtual_card_id, data)), 0) FROM deleted
+            """, nativeQuery = true)
+    long deleteWithDataById(Long virtualCardId);
+}
@@ -1,15 +1,73 @@
 package ru.clubcard.virtualcard.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.clubcard.virtualcard.entity.VirtualCardQRCode;
 import ru.clubcard.virtualcard.entity.VirtualCardQRCodeID;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface VirtualCardQRCodeRepository extends JpaRepository<VirtualCardQRCode, VirtualCardQRCodeID> {
-    List<VirtualCardQRCode> findAllByVirtualCard_Id(Long virtualCardId);
     Optional<VirtualCardQRCode> findByQrCode_Id(Long qrCodeId);
+
+    @Query("SELECT l.qrCode.id FROM VirtualCardQRCode l WHERE l.virtualCard.id = :virtualCardId")
+    List<Long> findQrCodeIdsByVirtualCardId(Long virtualCardId);
+
+    @Query("SELECT l.qrCode.id FROM VirtualCardQRCode l WHERE l.virtualCard.id = :virtualCardId AND l.qrCode.id > :afterId ORDER BY l.qrCode.id")
+    List<Long> findQrCodeIdsByVirtualCardId(Long virtualCardId, Long afterId, Pageable pageable);
+
+    @Query("SELECT new ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO(q.id, l.virtualCard.id, q.expireTime, q.isDisposable) " +
+            "FROM VirtualCardQRCode l JOIN l.qrCode q WHERE q.id = :qrCodeId")
+    Optional<QRCodeLinkDTO> findLinkByQrCodeId(Long qrCodeId);
+
+    @Query("SELECT new ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO(q.id, l.virtualCard.id, q.expireTime, q.isDisposable) " +
+            "FROM VirtualCardQRCode l JOIN l.qrCode q WHERE q.id IN :qrCodeIds")
+    List<QRCodeLinkDTO> findLinksByQrCodeIds(Collection<Long> qrCodeIds);
+
+    @Query("SELECT new ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO(q.id, l.virtualCard.id, q.expireTime, q.isDisposable) " +
+            "FROM VirtualCardQRCode l JOIN l.qrCode q WHERE q.id > :afterId AND q.expireTime > :now ORDER BY q.id")
+    List<QRCodeLinkDTO> findActiveLinks(Long afterId, LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claims disposable QR Code in a single statement: link and QR Code rows are deleted only if the code
+     * is disposable and not expired at {@code now}. Returns owning Virtual Card ID, empty for concurrent losers.
+     */
+    @Transactional
+    @Query(value = """
+            WITH link AS (
+                DELETE FROM virtualcard.virtual_cardqrcode l
+                USING virtualcard.qrcode q
+                WHERE l.qr_code_id = :qrCodeId AND q.id = l.qr_code_id AND q.is_disposable AND q.expire_time > :now
+                RETURNING l.virtual_card_id, l.qr_code_id
+            ), code AS (
+                DELETE FROM virtualcard.qrcode q USING link WHERE q.id = link.qr_code_id
+            )
+            SELECT virtual_card_id FROM link""", nativeQuery = true)
+    Optional<Long> consumeDisposable(Long qrCodeId, LocalDateTime now);
+
+    /**
+     * Batch variant of {@link #consumeDisposable(Long, LocalDateTime)}, expiry is checked by the caller
+     * against scan time. Codes expired at {@code oldestAllowedScan} (the start of the replay window) are never consumed.
+     * Returns IDs of QR Codes consumed by this statement.
+     */
+    @Transactional
+    @Query(value = """
+            WITH link AS (
+                DELETE FROM virtualcard.virtual_cardqrcode l
+                USING virtualcard.qrcode q
+                WHERE l.qr_code_id IN (:qrCodeIds) AND q.id = l.qr_code_id AND q.is_disposable AND q.expire_time > :oldestAllowedScan
+                RETURNING l.qr_code_id
+            ), code AS (
+                DELETE FROM virtualcard.qrcode q USING link WHERE q.id = link.qr_code_id
+            )
+            SELECT qr_code_id FROM link""", nativeQuery = true)
+    List<Long> consumeDisposable(Collection<Long> qrCodeIds, LocalDateTime oldestAllowedScan);
 }
@@ -0,0 +1,147 @@
+package ru.clubcard.virtualcard.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.clubcard.virtualcard.entity.card.*;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Denormalized copy of the JOINED Virtual Card tables ({@code virtual_card_read}), one row per card, so that lookups
+ * by ID are a single primary key read. Kept in sync by the writers in the same transaction and reconciled by
+ * {@code VirtualCardReadTableBackfill}. Does nothing while {@code clubcard.virtual-card.read-table.enabled} is off.
+ * Off by default until the gain is measured on the target data size with {@code VirtualCardLookupBenchmarkIntegrationTest}.
+ */
+@Repository
+public class VirtualCardReadRepository {
+    private static final String COLUMNS = """
+            id, type, user_id, privilege, status, id_text, username_text, privilege_text, role_text,
+            text_color, background_color, image_url, version, last_modified""";
+
+    private static final String UPSERT = "INSERT INTO virtualcard.virtual_card_read (" + COLUMNS + """
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET type = EXCLUDED.type, user_id = EXCLUDED.user_id, privilege = EXCLUDED.privilege,
+                status = EXCLUDED.status, id_text = EXCLUDED.id_text, username_text = EXCLUDED.username_text,
+                privilege_text = EXCLUDED.privilege_text, role_text = EXCLUDED.role_text, text_color = EXCLUDED.text_color,
+                background_color = EXCLUDED.background_color, image_url = EXCLUDED.image_url, version = EXCLUDED.version,
+                last_modified = EXCLUDED.last_modified
+            WHERE (COALESCE(virtual_card_read.version, -1), COALESCE(virtual_card_read.last_modified, '-infinity'))
+                < (COALESCE(EXCLUDED.version, -1), COALESCE(EXCLUDED.last_modified, '-infinity'))""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VirtualCardTextConverter virtualCardTextConverter = new VirtualCardTextConverter();
+    private final RowMapper<VirtualCard> rowMapper = (rs, rowNum) -> {
+        VirtualCard virtualCard;
+        if (rs.getShort("type") == VirtualCardType.IMAGE_BASED.ordinal()) {
+            ImageBasedVirtualCard imageBased = new ImageBasedVirtualCard();
+            imageBased.setTextColor(rs.getString("text_color"));
+            imageBased.setImageURL(rs.getString("image_url"));
+            virtualCard = imageBased;
+        } else {
+            ColorBasedVirtualCard colorBased = new ColorBasedVirtualCard();
+            colorBased.setTextColor(rs.getString("text_color"));
+            colorBased.setBackgroundColor(rs.getString("background_color"));
+            virtualCard = colorBased;
+        }
+
+        virtualCard.setId(rs.getLong("id"));
+        virtualCard.setUserId(rs.getObject("user_id", Long.class));
+        virtualCard.setPrivilege(enumValue(CardPrivilege.values(), rs.getObject("privilege", Integer.class)));
+        virtualCard.setStatus(enumValue(CardStatus.values(), rs.getObject("status", Integer.class)));
+        virtualCard.setIdText(virtualCardTextConverter.convertToEntityAttribute(rs.getBytes("id_text")));
+        virtualCard.setUsernameText(virtualCardTextConverter.convertToEntityAttribute(rs.getBytes("username_text")));
+        virtualCard.setPrivilegeText(virtualCardTextConverter.convertToEntityAttribute(rs.getBytes("privilege_text")));
+        virtualCard.setRoleText(virtualCardTextConverter.convertToEntityAttribute(rs.getBytes("role_text")));
+        virtualCard.setVersion(rs.getObject("version", Long.class));
+        Timestamp lastModified = rs.getTimestamp("last_modified");
+        virtualCard.setLastModified(lastModified == null ? null : lastModified.toInstant());
+        return virtualCard;
+    };
+
+    private final boolean enabled;
+
+    public VirtualCardReadRepository(JdbcTemplate jdbcTemplate, @Value("${clubcard.virtual-card.read-table.enabled}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cards come back detached, rebuilt from the row.
+     */
+    public Optional<VirtualCard> findById(long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM virtualcard.virtual_card_read WHERE id = ?", rowMapper, id).stream()
+                .findFirst();
+    }
+
+    public List<VirtualCard> findAllById(Collection<Long> ids) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM virtualcard.virtual_card_read WHERE id = ANY(?)", rowMapper,
+                (Object) ids.toArray(Long[]::new));
+    }
+
+    /**
+     * Expects flushed cards, version and modification time are copied as they are. A row is never replaced
+     * by an older or the same version, so concurrent writers can not roll it back.
+     */
+    public void save(VirtualCard virtualCard) {
+        if (enabled) {
+            jdbcTemplate.update(UPSERT, row(virtualCard));
+        }
+    }
+
+    public void saveAll(List<? extends VirtualCard> virtualCards) {
+        if (enabled && !virtualCards.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, virtualCards.stream().map(this::row).toList());
+        }
+    }
+
+    public void deleteById(long id) {
+        if (enabled) {
+            jdbcTemplate.update("DELETE FROM virtualcard.virtual_card_read WHERE id = ?", id);
+        }
+    }
+
+    private Object[] row(VirtualCard virtualCard) {
+        String textColor = null;
+        String backgroundColor = null;
+        String imageURL = null;
+        VirtualCardType type = VirtualCardType.COLOR_BASED;
+        if (virtualCard instanceof ColorBasedVirtualCard colorBased) {
+            textColor = colorBased.getTextColor();
+            backgroundColor = colorBased.getBackgroundColor();
+        } else if (virtualCard instanceof ImageBasedVirtualCard imageBased) {
+            type = VirtualCardType.IMAGE_BASED;
+            textColor = imageBased.getTextColor();
+            imageURL = imageBased.getImageURL();
+        }
+
+        return new Object[]{
+                virtualCard.getId(),
+                (short) type.ordinal(),
+                virtualCard.getUserId(),
+                virtualCard.getPrivilege() == null ? null : (short) virtualCard.getPrivilege().ordinal(),
+                virtualCard.getStatus() == null ? null : (short) virtualCard.getStatus().ordinal(),
+                virtualCardTextConverter.convertToDatabaseColumn(virtualCard.getIdText()),
+                virtualCardTextConverter.convertToDatabaseColumn(virtualCard.getUsernameText()),
+                virtualCardTextConverter.convertToDatabaseColumn(virtualCard.getPrivilegeText()),
+                virtualCardTextConverter.convertToDatabaseColumn(virtualCard.getRoleText()),
+                textColor,
+                backgroundColor,
+                imageURL,
+                virtualCard.getVersion(),
+                virtualCard.getLastModified() == null ? null : Timestamp.from(virtualCard.getLastModified())
+        };
+    }
+
+    private static <E extends Enum<E>> E enumValue(E[] values, Integer ordinal) {
+        return ordinal == null ? null : values[ordinal];
+    }
+}
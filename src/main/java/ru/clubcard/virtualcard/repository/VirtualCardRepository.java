@@ -1,12 +1,72 @@
 package ru.clubcard.virtualcard.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.clubcard.virtualcard.entity.card.CardPrivilege;
+import ru.clubcard.virtualcard.entity.card.CardStatus;
 import ru.clubcard.virtualcard.entity.card.VirtualCard;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardSummaryDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface VirtualCardRepository extends JpaRepository<VirtualCard, Long> {
-    @Query(value = "SELECT NEXTVAL('virtualcard.virtual_card_id_seq')", nativeQuery = true)
-    Long getNextSequenceValue();
+    @Query("SELECT v.id FROM VirtualCard v WHERE v.id IN :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query("SELECT v.id FROM VirtualCard v WHERE v.id > :afterId ORDER BY v.id")
+    List<Long> findIdsAfter(Long afterId, Pageable pageable);
+
+    /**
+     * Must be consumed inside a transaction and closed.
+     */
+    @Query("SELECT DISTINCT c.imageHash FROM ImageBasedVirtualCard c WHERE c.imageHash IS NOT NULL")
+    Stream<String> streamImageHashes();
+
+    /**
+     * Keyset page over the (user_id, id) index built by {@code VirtualCardUserIndexBuilder},
+     * selects base table columns only so no subtype table is joined.
+     */
+    @Query("""
+            SELECT new ru.clubcard.virtualcard.entity.card.dto.VirtualCardSummaryDTO(v.id, v.privilege, v.status, v.version, v.lastModified)
+            FROM VirtualCard v
+            WHERE v.userId = :userId AND v.id > :afterId
+                AND (:status IS NULL OR v.status = :status) AND (:privilege IS NULL OR v.privilege = :privilege)
+            ORDER BY v.id""")
+    List<VirtualCardSummaryDTO> findSummariesByUserId(Long userId, CardStatus status, CardPrivilege privilege, Long afterId, Pageable pageable);
+
+    /**
+     * Moves the card into the other JOINED subtype table, the base row is kept with its version bumped.
+     * Returns 0 when the version no longer matches. Clears the persistence context, reload the card afterwards.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query(value = """
+            WITH card AS (
+                UPDATE virtualcard.virtual_card SET version = version + 1 WHERE id = :id AND version = :version RETURNING id
+            ), subtype AS (
+                DELETE FROM virtualcard.image_based_virtual_card WHERE id IN (SELECT id FROM card)
+            )
+            INSERT INTO virtualcard.color_based_virtual_card (id) SELECT id FROM card""", nativeQuery = true)
+    int swapToColorBased(Long id, Long version);
+
+    /**
+     * Same as {@link #swapToColorBased(Long, Long)} in the other direction.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query(value = """
+            WITH card AS (
+                UPDATE virtualcard.virtual_card SET version = version + 1 WHERE id = :id AND version = :version RETURNING id
+            ), subtype AS (
+                DELETE FROM virtualcard.color_based_virtual_card WHERE id IN (SELECT id FROM card)
+            )
+            INSERT INTO virtualcard.image_based_virtual_card (id) SELECT id FROM card""", nativeQuery = true)
+    int swapToImageBased(Long id, Long version);
 }
@@ -1,12 +1,20 @@
 package ru.clubcard.virtualcard.service;
 
 import org.springframework.http.ResponseEntity;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeScanDTO;
+import ru.clubcard.virtualcard.image.QRCodeImageFormat;
+
+import java.util.List;
 
 public interface QRCodeService {
     ResponseEntity<?> generate(Long virtualCardId, boolean isDisposable);
-    ResponseEntity<?> get(Long qrCodeId);
+    ResponseEntity<?> generateBatch(List<Long> virtualCardIds, Long virtualCardId, int count, boolean isDisposable);
+    ResponseEntity<?> get(Long qrCodeId, QRCodeImageFormat format);
+    ResponseEntity<?> getBatch(List<Long> qrCodeIds, Long virtualCardId, QRCodeImageFormat format);
     ResponseEntity<?> getInfo(Long qrCodeId);
-    ResponseEntity<?> getAllInfo(Long virtualCardId);
+    ResponseEntity<?> getAllInfo(Long virtualCardId, Long afterId, Integer limit);
     ResponseEntity<?> check(Long qrCodeId);
+    ResponseEntity<?> checkToken(String token);
+    ResponseEntity<?> checkBatch(List<QRCodeScanDTO> scans);
     ResponseEntity<?> delete(Long qrCodeId);
 }
@@ -2,15 +2,24 @@ package ru.clubcard.virtualcard.service;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
+import ru.clubcard.virtualcard.entity.card.CardPrivilege;
+import ru.clubcard.virtualcard.entity.card.CardStatus;
 import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
 
+import java.io.InputStream;
+import java.util.List;
+
 public interface VirtualCardService {
     ResponseEntity<?> createCard(Long userId);
+    ResponseEntity<?> createCards(List<Long> userIds);
     ResponseEntity<?> getCard(Long id);
-    ResponseEntity<?> putCard(VirtualCardDTO data);
+    ResponseEntity<?> putCard(VirtualCardDTO data, String ifMatch);
     ResponseEntity<?> patchCard(VirtualCardDTO data);
     ResponseEntity<?> deleteCard(Long id);
 
     ResponseEntity<?> saveImage(Long cardId, MultipartFile image);
-    ResponseEntity<?> getImage(Long cardId);
+    ResponseEntity<?> uploadImage(Long cardId, InputStream image);
+    ResponseEntity<?> listCards(Long userId, CardStatus status, CardPrivilege privilege, Long afterId, Integer limit);
+    ResponseEntity<?> getImage(Long cardId, Integer size, Double dpr);
+    ResponseEntity<?> renderCard(Long cardId, Integer width, String format, Long qrCodeId);
 }
@@ -1,93 +1,262 @@
 package ru.clubcard.virtualcard.service.impl;
 
-import com.google.zxing.BarcodeFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import ru.clubcard.virtualcard.entity.VirtualCardQRCode;
-import ru.clubcard.virtualcard.entity.card.VirtualCard;
-import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.clubcard.virtualcard.cache.CachedImage;
+import ru.clubcard.virtualcard.cache.CachedVirtualCard;
+import ru.clubcard.virtualcard.cache.ImageCache;
+import ru.clubcard.virtualcard.cache.VirtualCardCache;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
 import ru.clubcard.virtualcard.entity.qrcode.QRCode;
+import ru.clubcard.virtualcard.entity.qrcode.QRCodeCheckStatus;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeCheckResultDTO;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeScanDTO;
+import ru.clubcard.virtualcard.image.QRCodeImageFormat;
+import ru.clubcard.virtualcard.image.QRCodeRenderer;
+import ru.clubcard.virtualcard.index.LiveIdFilter;
+import ru.clubcard.virtualcard.index.QRCodeIndex;
+import ru.clubcard.virtualcard.repository.PooledIdAllocator;
+import ru.clubcard.virtualcard.repository.QRCodeBatchRepository;
+import ru.clubcard.virtualcard.repository.QRCodeInfoRepository;
 import ru.clubcard.virtualcard.repository.QRCodeRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardQRCodeRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardRepository;
 import ru.clubcard.virtualcard.service.QRCodeService;
+import ru.clubcard.virtualcard.token.QRCodeRevocations;
+import ru.clubcard.virtualcard.token.QRCodeToken;
+import ru.clubcard.virtualcard.token.QRCodeTokenCodec;
 
-import javax.imageio.ImageIO;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class QRCodeServiceImpl implements QRCodeService {
-    private final QRCodeWriter qrCodeWriter;
+    private static final String BATCH_FAILED_IDS_ENTRY = "failed-ids.txt";
+
+    private final QRCodeRenderer qrCodeRenderer;
     private final VirtualCardRepository virtualCardRepository;
     private final QRCodeRepository qrCodeRepository;
     private final VirtualCardQRCodeRepository virtualCardQRCodeRepository;
-    private final VirtualCardMapper virtualCardMapper;
+    private final ImageCache qrCodeImageCache;
+    private final ForkJoinPool qrCodeRenderPool;
+    private final QRCodeIndex qrCodeIndex;
+    private final QRCodeTokenCodec qrCodeTokenCodec;
+    private final QRCodeRevocations qrCodeRevocations;
+    private final LiveIdFilter qrCodeIdFilter;
+    private final QRCodeBatchRepository qrCodeBatchRepository;
+    private final PooledIdAllocator qrCodeIdAllocator;
+    private final VirtualCardCache virtualCardCache;
+    private final QRCodeInfoRepository qrCodeInfoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
 
     @Value("${clubcard.qr-code.default-expire-hours}")
     private long expireHours;
 
-    @Value("${clubcard.qr-code.width}")
-    private int width;
+    @Value("${clubcard.qr-code.batch.chunk-size}")
+    private int batchChunkSize;
+
+    @Value("${clubcard.qr-code.generate.batch.max-size}")
+    private int generateBatchMaxSize;
+
+    @Value("${clubcard.qr-code.check.batch.max-size}")
+    private int checkBatchMaxSize;
 
-    @Value("${clubcard.qr-code.height}")
-    private int height;
+    @Value("${clubcard.qr-code.check.batch.max-scan-age}")
+    private Duration checkBatchMaxScanAge;
 
     @Override
     @Transactional
     public ResponseEntity<?> generate(Long virtualCardId, boolean isDisposable) {
-        VirtualCard virtualCard = virtualCardRepository.findById(virtualCardId).orElse(null);
-        if (virtualCard == null) {
+        if (!virtualCardRepository.existsById(virtualCardId)) {
             return new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
         }
 
-        QRCode qrCode = QRCode.builder()
-                .isDisposable(isDisposable)
-                .expireTime(LocalDateTime.now().plusHours(expireHours))
-                .build();
+        // Same allocator as batches, its blocks expire which the ID filter relies on
+        long qrCodeId = qrCodeIdAllocator.next();
+        LocalDateTime expireTime = LocalDateTime.now().plusHours(expireHours);
+        qrCodeBatchRepository.insertAll(new long[]{qrCodeId}, new long[]{virtualCardId}, isDisposable, expireTime);
+
+        qrCodeIndex.put(qrCodeId, virtualCardId, toEpochSecond(expireTime), isDisposable);
+        qrCodeIdFilter.add(qrCodeId);
+        return ResponseEntity.ok(Map.of("message", "QR Code generated.", "id", qrCodeId));
+    }
+
+    @Override
+    @Transactional
+    public ResponseEntity<?> generateBatch(List<Long> virtualCardIds, Long virtualCardId, int count, boolean isDisposable) {
+        boolean hasVirtualCardIds = virtualCardIds != null && !virtualCardIds.isEmpty();
+        if (hasVirtualCardIds == (virtualCardId != null)) {
+            return new ResponseEntity<>(Map.of("message", "Either Virtual Card IDs or Virtual Card ID must be present."), HttpStatus.BAD_REQUEST);
+        }
+
+        List<Long> distinctIds = hasVirtualCardIds ? virtualCardIds.stream().distinct().toList() : List.of(virtualCardId);
+        if (count < 1 || (long) distinctIds.size() * count > generateBatchMaxSize) {
+            return new ResponseEntity<>(Map.of("message", "Batch must contain from 1 to " + generateBatchMaxSize + " QR Codes."), HttpStatus.BAD_REQUEST);
+        }
+
+        Set<Long> existingIds = new HashSet<>(virtualCardRepository.findExistingIds(distinctIds));
+        if (existingIds.size() != distinctIds.size()) {
+            return new ResponseEntity<>(Map.of("message", "Virtual Card not found.",
+                    "ids", distinctIds.stream().filter(id -> !existingIds.contains(id)).toList()), HttpStatus.NOT_FOUND);
+        }
+
+        long[] qrCodeIds = qrCodeIdAllocator.allocate(distinctIds.size() * count);
+        long[] owners = new long[qrCodeIds.length];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = distinctIds.get(i / count);
+        }
+
+        LocalDateTime expireTime = LocalDateTime.now().plusHours(expireHours);
+        qrCodeBatchRepository.insertAll(qrCodeIds, owners, isDisposable, expireTime);
 
-        VirtualCardQRCode virtualCardQRCode = new VirtualCardQRCode(virtualCard, qrCode);
+        long expireEpochSecond = toEpochSecond(expireTime);
+        for (int i = 0; i < qrCodeIds.length; i++) {
+            qrCodeIndex.put(qrCodeIds[i], owners[i], expireEpochSecond, isDisposable);
+            qrCodeIdFilter.add(qrCodeIds[i]);
+        }
 
-        qrCodeRepository.save(qrCode);
-        virtualCardQRCodeRepository.save(virtualCardQRCode);
-        return ResponseEntity.ok(Map.of("message", "QR Code generated.", "id", qrCode.getId()));
+        return ResponseEntity.ok(Map.of("message", "QR Codes generated.", "ids", qrCodeIds));
     }
 
     @Override
-    public ResponseEntity<?> get(Long qrCodeId) {
-        QRCode qrCode = qrCodeRepository.findById(qrCodeId).orElse(null);
-        if (qrCode == null) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<?> get(Long qrCodeId, QRCodeImageFormat format) {
+        String variant = qrCodeRenderer.variant(format);
+
+        CachedImage image = qrCodeImageCache.get(qrCodeId, variant);
+        if (image == null) {
+            String contents;
+            LocalDateTime expireTime;
+            if (qrCodeTokenCodec.isEnabled()) {
+                QRCodeLinkDTO link = virtualCardQRCodeRepository.findLinkByQrCodeId(qrCodeId).orElse(null);
+                if (link == null) {
+                    return ResponseEntity.notFound().build();
+                }
+
+                contents = token(link);
+                expireTime = link.expireTime();
+            } else {
+                QRCode qrCode = qrCodeRepository.findById(qrCodeId).orElse(null);
+                if (qrCode == null) {
+                    return ResponseEntity.notFound().build();
+                }
+
+                contents = qrCode.getId().toString();
+                expireTime = qrCode.getExpireTime();
+            }
+
+            try {
+                image = CachedImage.of(qrCodeRenderer.render(contents, format), format.getMediaType(),
+                        expireTime.atZone(ZoneId.systemDefault()).toInstant());
+                qrCodeImageCache.put(qrCodeId, variant, image);
+            } catch (WriterException | IOException e) {
+                log.error(e.getMessage());
+                return ResponseEntity.internalServerError().build();
+            }
         }
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            BitMatrix bitMatrix = qrCodeWriter.encode(qrCode.getId().toString(), BarcodeFormat.QR_CODE, width, height);
-            ImageIO.write(MatrixToImageWriter.toBufferedImage(bitMatrix), "JPEG", baos);
+        // The format may come from Accept, caches must not hand one format to a client that asked for another
+        return ResponseEntity.ok()
+                .contentType(image.mediaType())
+                .eTag(image.eTag() + "." + format.getExtension())
+                .varyBy(HttpHeaders.ACCEPT)
+                .cacheControl(CacheControl.maxAge(maxAge(image.expiresAt())).cachePrivate())
+                .body(image.bytes());
+    }
+
+    @Override
+    public ResponseEntity<?> getBatch(List<Long> qrCodeIds, Long virtualCardId, QRCodeImageFormat format) {
+        boolean hasQRCodeIds = qrCodeIds != null && !qrCodeIds.isEmpty();
+        if (hasQRCodeIds == (virtualCardId != null)) {
+            return new ResponseEntity<>(Map.of("message", "Either QR Code IDs or Virtual Card ID must be present."), HttpStatus.BAD_REQUEST);
+        }
 
-            return ResponseEntity.ok(baos.toByteArray());
-        } catch (WriterException | IOException e) {
-            log.error(e.getMessage());
+        // Checked before streaming starts, afterwards the status is already sent
+        if (virtualCardId != null && !virtualCardRepository.existsById(virtualCardId)) {
+            return new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
         }
 
-        return ResponseEntity.internalServerError().build();
+        StreamingResponseBody body = out -> {
+            try (ZipOutputStream zip = new ZipOutputStream(out)) {
+                zip.setLevel(Deflater.BEST_SPEED);
+                List<Long> failedIds = new ArrayList<>();
+
+                if (virtualCardId != null) {
+                    long afterId = 0;
+                    List<Long> chunk;
+                    do {
+                        chunk = virtualCardQRCodeRepository.findQrCodeIdsByVirtualCardId(virtualCardId, afterId, PageRequest.of(0, batchChunkSize));
+                        writeBatchChunk(zip, chunk, format, failedIds);
+                        if (!chunk.isEmpty()) {
+                            afterId = chunk.get(chunk.size() - 1);
+                        }
+                    } while (chunk.size() == batchChunkSize);
+                } else {
+                    List<Long> distinctIds = qrCodeIds.stream().distinct().toList();
+                    for (int from = 0; from < distinctIds.size(); from += batchChunkSize) {
+                        List<Long> chunk = distinctIds.subList(from, Math.min(from + batchChunkSize, distinctIds.size()));
+                        writeBatchChunk(zip, qrCodeRepository.findExistingIds(chunk), format, failedIds);
+                    }
+                }
+
+                // Headers are already sent, so images that failed to render are listed instead of failing the response
+                if (!failedIds.isEmpty()) {
+                    zip.putNextEntry(new ZipEntry(BATCH_FAILED_IDS_ENTRY));
+                    zip.write(failedIds.stream().map(String::valueOf).collect(Collectors.joining("\n", "", "\n"))
+                            .getBytes(StandardCharsets.US_ASCII));
+                    zip.closeEntry();
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("qr-codes.zip").build().toString())
+                .body(body);
     }
 
     @Override
     public ResponseEntity<?> getInfo(Long qrCodeId) {
-        QRCode qrCode = qrCodeRepository.findById(qrCodeId).orElse(null);
+        QRCode qrCode = qrCodeIdFilter.mightContain(qrCodeId) ? qrCodeRepository.findById(qrCodeId).orElse(null) : null;
         if (qrCode == null) {
             return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
         }
@@ -97,38 +266,184 @@ public class QRCodeServiceImpl implements QRCodeService {
         return ResponseEntity.ok(qrCode);
     }
 
+    /**
+     * Streams the JSON array straight from the cursor, so memory does not grow with the number of QR Codes.
+     * The transaction is opened on the writing thread to keep the cursor open while the response is written.
+     */
     @Override
-    @Transactional
-    public ResponseEntity<?> getAllInfo(Long virtualCardId) {
-        return ResponseEntity.ok(virtualCardQRCodeRepository.findAllByVirtualCard_Id(virtualCardId).stream()
-                .map(VirtualCardQRCode::getQrCode)
-                .peek(qrCode -> qrCode.setQrCodeURL("/qr-code/get-image/" + qrCode.getId()))
-                .toList());
+    public ResponseEntity<?> getAllInfo(Long virtualCardId, Long afterId, Integer limit) {
+        StreamingResponseBody body = out -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeAllInfo(out, virtualCardId, afterId == null ? 0 : afterId, limit));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private void writeAllInfo(OutputStream out, long virtualCardId, long afterId, Integer limit) {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<QRCode> qrCodes = qrCodeInfoRepository.streamByVirtualCardId(virtualCardId, afterId, limit)) {
+            // A failure mid-stream must leave the array unterminated, never valid truncated JSON
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartArray();
+            for (Iterator<QRCode> iterator = qrCodes.iterator(); iterator.hasNext(); ) {
+                QRCode qrCode = iterator.next();
+                qrCode.setQrCodeURL("/qr-code/get-image/" + qrCode.getId());
+                generator.writeObject(qrCode);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     @Transactional
     public ResponseEntity<?> check(Long qrCodeId) {
-        VirtualCardQRCode virtualCardQRCode = virtualCardQRCodeRepository.findByQrCode_Id(qrCodeId).orElse(null);
+        QRCodeIndex.Entry entry = qrCodeIndex.get(qrCodeId);
+        boolean indexed = entry != null;
+
+        if (entry == null) {
+            QRCodeLinkDTO link = qrCodeIdFilter.mightContain(qrCodeId) ? virtualCardQRCodeRepository.findLinkByQrCodeId(qrCodeId).orElse(null) : null;
+            if (link == null) {
+                return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+            }
+
+            entry = qrCodeIndex.put(qrCodeId, link.virtualCardId(), toEpochSecond(link.expireTime()), link.isDisposable());
+        }
+
+        if (entry.isExpired(Instant.now().getEpochSecond())) {
+            qrCodeRepository.deleteWithLinksById(qrCodeId);
+            forget(qrCodeId);
+            return new ResponseEntity<>(Map.of("message", "QR Code expired!"), HttpStatus.FORBIDDEN);
+        }
+
+        if (entry.disposable()) {
+            Long consumedBy = virtualCardQRCodeRepository.consumeDisposable(qrCodeId, LocalDateTime.now()).orElse(null);
+            forget(qrCodeId);
+
+            if (consumedBy == null) {
+                return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+            }
+        } else if (indexed && !qrCodeRepository.existsById(qrCodeId)) {
+            // Deleted by another instance since the index was loaded
+            forget(qrCodeId);
+            return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+        }
 
-        if (virtualCardQRCode == null) {
+        CachedVirtualCard virtualCard = virtualCardCache.get(entry.virtualCardId());
+        if (virtualCard == null) {
+            qrCodeIndex.remove(qrCodeId);
             return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
         }
 
-        QRCode qrCode = virtualCardQRCode.getQrCode();
+        return ResponseEntity.ok(virtualCard.virtualCard());
+    }
+
+    @Override
+    @Transactional
+    public ResponseEntity<?> checkToken(String token) {
+        QRCodeToken qrCodeToken = qrCodeTokenCodec.decode(token);
+        if (qrCodeToken == null || qrCodeRevocations.isRevoked(qrCodeToken.qrCodeId())) {
+            return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+        }
 
-        if (qrCode.getExpireTime().isBefore(LocalDateTime.now())) {
-            virtualCardQRCodeRepository.delete(virtualCardQRCode);
-            qrCodeRepository.delete(qrCode);
+        if (qrCodeToken.isExpired(Instant.now().getEpochSecond())) {
             return new ResponseEntity<>(Map.of("message", "QR Code expired!"), HttpStatus.FORBIDDEN);
         }
 
-        if (qrCode.isDisposable()) {
-            virtualCardQRCodeRepository.delete(virtualCardQRCode);
-            qrCodeRepository.delete(qrCode);
+        if (qrCodeToken.disposable()) {
+            Long consumedBy = virtualCardQRCodeRepository.consumeDisposable(qrCodeToken.qrCodeId(), LocalDateTime.now()).orElse(null);
+            forget(qrCodeToken.qrCodeId());
+
+            if (consumedBy == null) {
+                return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+            }
+        }
+
+        CachedVirtualCard virtualCard = virtualCardCache.get(qrCodeToken.virtualCardId());
+        if (virtualCard == null) {
+            return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
         }
 
-        return ResponseEntity.ok(virtualCardMapper.toDTO(virtualCardQRCode.getVirtualCard()));
+        return ResponseEntity.ok(virtualCard.virtualCard());
+    }
+
+    @Override
+    @Transactional
+    public ResponseEntity<?> checkBatch(List<QRCodeScanDTO> scans) {
+        if (scans == null || scans.isEmpty() || scans.size() > checkBatchMaxSize) {
+            return new ResponseEntity<>(Map.of("message", "Batch must contain from 1 to " + checkBatchMaxSize + " scans."), HttpStatus.BAD_REQUEST);
+        }
+
+        Set<Long> qrCodeIds = scans.stream()
+                .map(QRCodeScanDTO::qrCodeId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, QRCodeLinkDTO> links = qrCodeIds.isEmpty() ? Map.of() : virtualCardQRCodeRepository.findLinksByQrCodeIds(qrCodeIds).stream()
+                .collect(Collectors.toMap(QRCodeLinkDTO::qrCodeId, Function.identity()));
+
+        // Statuses are resolved against scan time, the first valid scan of a disposable QR Code claims it.
+        // Scan time is clamped into the replay window, so that an old scannedAt can not revive expired QR Codes
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldestAllowedScan = now.minus(checkBatchMaxScanAge);
+        QRCodeCheckStatus[] statuses = new QRCodeCheckStatus[scans.size()];
+        Set<Long> claimed = new HashSet<>();
+        for (int i = 0; i < scans.size(); i++) {
+            QRCodeScanDTO scan = scans.get(i);
+            QRCodeLinkDTO link = scan.qrCodeId() == null ? null : links.get(scan.qrCodeId());
+            LocalDateTime scannedAt = scan.scannedAt() == null || scan.scannedAt().isAfter(now) ? now
+                    : scan.scannedAt().isBefore(oldestAllowedScan) ? oldestAllowedScan : scan.scannedAt();
+
+            if (link == null) {
+                statuses[i] = QRCodeCheckStatus.NOT_FOUND;
+            } else if (!link.expireTime().isAfter(scannedAt)) {
+                statuses[i] = QRCodeCheckStatus.EXPIRED;
+            } else if (link.isDisposable() && !claimed.add(link.qrCodeId())) {
+                statuses[i] = QRCodeCheckStatus.ALREADY_USED;
+            } else {
+                statuses[i] = QRCodeCheckStatus.OK;
+            }
+        }
+
+        Set<Long> consumed = claimed.isEmpty() ? Set.of() : new HashSet<>(virtualCardQRCodeRepository.consumeDisposable(claimed, oldestAllowedScan));
+        claimed.forEach(this::forget);
+
+        Set<Long> virtualCardIds = new HashSet<>();
+        for (int i = 0; i < scans.size(); i++) {
+            if (statuses[i] == QRCodeCheckStatus.OK) {
+                QRCodeLinkDTO link = links.get(scans.get(i).qrCodeId());
+                if (link.isDisposable() && !consumed.contains(link.qrCodeId())) {
+                    statuses[i] = QRCodeCheckStatus.ALREADY_USED;
+                } else {
+                    virtualCardIds.add(link.virtualCardId());
+                }
+            }
+        }
+
+        Map<Long, CachedVirtualCard> virtualCards = virtualCardIds.isEmpty() ? Map.of() : virtualCardCache.getAll(virtualCardIds);
+
+        List<QRCodeCheckResultDTO> results = new ArrayList<>(scans.size());
+        for (int i = 0; i < scans.size(); i++) {
+            Long qrCodeId = scans.get(i).qrCodeId();
+            VirtualCardDTO virtualCard = null;
+            if (statuses[i] == QRCodeCheckStatus.OK) {
+                CachedVirtualCard cached = virtualCards.get(links.get(qrCodeId).virtualCardId());
+                if (cached == null) {
+                    statuses[i] = QRCodeCheckStatus.NOT_FOUND;
+                } else {
+                    virtualCard = cached.virtualCard();
+                }
+            }
+            results.add(new QRCodeCheckResultDTO(qrCodeId, statuses[i], virtualCard));
+        }
+
+        return ResponseEntity.ok(results);
     }
 
     @Override
@@ -138,7 +453,71 @@ public class QRCodeServiceImpl implements QRCodeService {
             return new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
         }
 
-        qrCodeRepository.delete(qrCode);
+        qrCodeRepository.deleteWithLinksById(qrCodeId);
+        qrCodeRevocations.revoke(qrCodeId, qrCode.getExpireTime());
+        forget(qrCodeId);
         return ResponseEntity.ok(Map.of("message", "QR Code deleted."));
     }
+
+    private void forget(Long qrCodeId) {
+        qrCodeIndex.remove(qrCodeId);
+        qrCodeImageCache.evict(qrCodeId);
+    }
+
+    private String token(QRCodeLinkDTO link) {
+        return qrCodeTokenCodec.encode(link.qrCodeId(), link.virtualCardId(), toEpochSecond(link.expireTime()), link.isDisposable());
+    }
+
+    /**
+     * QR Code contents for a chunk of existing QR Code IDs: the ID itself, or a signed token in token mode.
+     */
+    private Map<Long, String> contents(List<Long> qrCodeIds) {
+        if (!qrCodeTokenCodec.isEnabled()) {
+            return qrCodeIds.stream().collect(Collectors.toMap(Function.identity(), String::valueOf));
+        }
+
+        return virtualCardQRCodeRepository.findLinksByQrCodeIds(qrCodeIds).stream()
+                .collect(Collectors.toMap(QRCodeLinkDTO::qrCodeId, this::token));
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private void writeBatchChunk(ZipOutputStream zip, List<Long> qrCodeIds, QRCodeImageFormat format, List<Long> failedIds) throws IOException {
+        Map<Long, String> contents = contents(qrCodeIds);
+
+        CompletionService<byte[]> completionService = new ExecutorCompletionService<>(qrCodeRenderPool);
+        Map<Future<byte[]>, Long> pending = new HashMap<>();
+        contents.forEach((qrCodeId, payload) ->
+                pending.put(completionService.submit(() -> qrCodeRenderer.render(payload, format)), qrCodeId));
+
+        for (int i = 0; i < contents.size(); i++) {
+            Long qrCodeId;
+            byte[] rendered;
+            try {
+                Future<byte[]> future = completionService.take();
+                qrCodeId = pending.get(future);
+                try {
+                    rendered = future.get();
+                } catch (ExecutionException e) {
+                    log.error("Image of QR Code {} was not rendered", qrCodeId, e.getCause());
+                    failedIds.add(qrCodeId);
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+
+            zip.putNextEntry(new ZipEntry(qrCodeId + "." + format.getExtension()));
+            zip.write(rendered);
+            zip.closeEntry();
+        }
+    }
+
+    private Duration maxAge(Instant expiresAt) {
+        Duration maxAge = Duration.between(Instant.now(), expiresAt);
+        return maxAge.isNegative() ? Duration.ZERO : maxAge;
+    }
 }
@@ -3,28 +3,124 @@ package ru.clubcard.virtualcard.service.impl;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import ru.clubcard.virtualcard.cache.CachedImage;
+import ru.clubcard.virtualcard.cache.CachedVirtualCard;
+import ru.clubcard.virtualcard.cache.ImageCache;
+import ru.clubcard.virtualcard.cache.VirtualCardCache;
 import ru.clubcard.virtualcard.entity.card.*;
 import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
 import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardSummaryDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardSummaryPageDTO;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO;
+import ru.clubcard.virtualcard.image.VirtualCardImageFormat;
+import ru.clubcard.virtualcard.image.VirtualCardRenderer;
+import ru.clubcard.virtualcard.index.LiveIdFilter;
+import ru.clubcard.virtualcard.index.QRCodeIndex;
+import ru.clubcard.virtualcard.repository.PooledIdAllocator;
+import ru.clubcard.virtualcard.repository.VirtualCardBatchRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardImageRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardQRCodeRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardRepository;
 import ru.clubcard.virtualcard.service.VirtualCardService;
+import ru.clubcard.virtualcard.storage.ImageDerivatives;
+import ru.clubcard.virtualcard.storage.ImageFormat;
+import ru.clubcard.virtualcard.storage.ImageRejectedException;
+import ru.clubcard.virtualcard.storage.ImageStore;
+import ru.clubcard.virtualcard.storage.StoredImage;
+import ru.clubcard.virtualcard.token.QRCodeTokenCodec;
 
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class VirtualCardServiceImpl implements VirtualCardService {
     private final VirtualCardRepository virtualCardRepository;
     private final VirtualCardMapper virtualCardMapper;
+    private final VirtualCardQRCodeRepository virtualCardQRCodeRepository;
+    private final ImageCache qrCodeImageCache;
+    private final QRCodeIndex qrCodeIndex;
+    private final LiveIdFilter virtualCardIdFilter;
+    private final PooledIdAllocator virtualCardIdAllocator;
+    private final VirtualCardBatchRepository virtualCardBatchRepository;
+    private final ImageStore imageStore;
+    private final VirtualCardImageRepository virtualCardImageRepository;
+    private final ImageDerivatives imageDerivatives;
+    private final VirtualCardRenderer virtualCardRenderer;
+    private final ImageCache virtualCardRenderCache;
+    private final QRCodeTokenCodec qrCodeTokenCodec;
+    private final VirtualCardCache virtualCardCache;
+    private final VirtualCardReadRepository virtualCardReadRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${clubcard.virtual-card.create.batch.max-size}")
+    private int createBatchMaxSize;
+
+    @Value("${clubcard.image-store.max-bytes}")
+    private long imageMaxBytes;
+
+    @Value("${clubcard.virtual-card.list.default-limit}")
+    private int listDefaultLimit;
+
+    @Value("${clubcard.virtual-card.list.max-limit}")
+    private int listMaxLimit;
+
+    @Value("${clubcard.virtual-card.render.max-width}")
+    private int renderMaxWidth;
 
     @Override
     public ResponseEntity<?> createCard(Long userId) {
-        VirtualCard virtualCard = ColorBasedVirtualCard.builder()
-                .id(virtualCardRepository.getNextSequenceValue())
+        VirtualCard virtualCard = virtualCardBatchRepository.persistAll(List.of(defaultCard(virtualCardIdAllocator.next(), userId))).get(0);
+        virtualCardIdFilter.add(virtualCard.getId());
+        return ResponseEntity.ok(virtualCardMapper.toDTO(virtualCard));
+    }
+
+    @Override
+    public ResponseEntity<?> createCards(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty() || userIds.size() > createBatchMaxSize || userIds.stream().anyMatch(Objects::isNull)) {
+            return new ResponseEntity<>(Map.of("message", "Batch must contain from 1 to " + createBatchMaxSize + " User IDs."), HttpStatus.BAD_REQUEST);
+        }
+
+        long[] ids = virtualCardIdAllocator.allocate(userIds.size());
+        List<VirtualCard> virtualCards = new ArrayList<>(userIds.size());
+        for (int i = 0; i < ids.length; i++) {
+            virtualCards.add(defaultCard(ids[i], userIds.get(i)));
+        }
+
+        virtualCardBatchRepository.persistAll(virtualCards);
+        for (long id : ids) {
+            virtualCardIdFilter.add(id);
+        }
+        return ResponseEntity.ok(Map.of("message", "Virtual Cards created.", "ids", ids));
+    }
+
+    private static VirtualCard defaultCard(long id, Long userId) {
+        return ColorBasedVirtualCard.builder()
+                .id(id)
                 .userId(userId)
                 .privilege(CardPrivilege.CARD_PRIVILEGE_STANDARD)
                 .status(CardStatus.CARD_STATUS_WAITING)
@@ -35,40 +131,116 @@ public class VirtualCardServiceImpl implements VirtualCardService {
                 .textColor("black")
                 .backgroundColor("white")
                 .build();
+    }
+
+    /**
+     * Card DTO with validators, Spring MVC answers 304 itself when If-None-Match or If-Modified-Since matches.
+     */
+    private ResponseEntity<?> cardResponse(CachedVirtualCard virtualCard) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (virtualCard.eTag() != null) {
+            response.eTag(virtualCard.eTag());
+        }
+        if (virtualCard.lastModified() != null) {
+            response.lastModified(virtualCard.lastModified());
+        }
+        return response.body(virtualCard.virtualCard());
+    }
 
-        return ResponseEntity.ok(virtualCardMapper.toDTO(virtualCardRepository.save(virtualCard)));
+    private ResponseEntity<?> cardResponse(VirtualCard virtualCard) {
+        return cardResponse(CachedVirtualCard.of(virtualCard, virtualCardMapper));
     }
 
     @Override
     public ResponseEntity<?> getCard(Long id) {
-        VirtualCard virtualCard = virtualCardRepository.findById(id).orElse(null);
+        CachedVirtualCard virtualCard = virtualCardIdFilter.mightContain(id) ? virtualCardCache.get(id) : null;
 
         if (virtualCard == null) {
             return new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
         }
 
-        return ResponseEntity.ok(virtualCardMapper.toDTO(virtualCard));
+        return cardResponse(virtualCard);
+    }
+
+    @Override
+    public ResponseEntity<?> listCards(Long userId, CardStatus status, CardPrivilege privilege, Long afterId, Integer limit) {
+        int pageSize = limit == null ? listDefaultLimit : limit;
+        if (pageSize < 1 || pageSize > listMaxLimit) {
+            return new ResponseEntity<>(Map.of("message", "Limit must be from 1 to " + listMaxLimit + "."), HttpStatus.BAD_REQUEST);
+        }
+
+        List<VirtualCardSummaryDTO> virtualCards = virtualCardRepository.findSummariesByUserId(
+                userId, status, privilege, afterId == null ? 0 : afterId, PageRequest.of(0, pageSize));
+        Long nextAfterId = virtualCards.size() == pageSize ? virtualCards.get(pageSize - 1).id() : null;
+        return ResponseEntity.ok(new VirtualCardSummaryPageDTO(virtualCards, nextAfterId));
     }
 
     @Override
     @Transactional
-    public ResponseEntity<?> putCard(VirtualCardDTO data) {
-        VirtualCard oldVirtualCard = virtualCardRepository.findById(data.getId()).orElse(null);
-        if (oldVirtualCard == null) {
+    public ResponseEntity<?> putCard(VirtualCardDTO data, String ifMatch) {
+        VirtualCard virtualCard = virtualCardRepository.findById(data.getId()).orElse(null);
+        if (virtualCard == null) {
             return new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
         }
 
-        VirtualCard newVirtualCard = virtualCardMapper.toVirtualCard(data);
+        if (!matches(ifMatch, CachedVirtualCard.eTag(virtualCard))) {
+            return new ResponseEntity<>(Map.of("message", "Virtual Card was modified."), HttpStatus.PRECONDITION_FAILED);
+        }
+
+        virtualCardRenderCache.evict(virtualCard.getId());
+        virtualCardCache.evict(virtualCard.getId());
 
-        if (oldVirtualCard instanceof ImageBasedVirtualCard oldImageBased && newVirtualCard instanceof ImageBasedVirtualCard newImageBased) {
-            newImageBased.setImageURL(oldImageBased.getImageURL());
+        // Type change moves only the subtype row, the base row and its QR Code links stay
+        if (typeOf(virtualCard) != data.getType()) {
+            int swapped = switch (data.getType()) {
+                case COLOR_BASED -> virtualCardRepository.swapToColorBased(virtualCard.getId(), virtualCard.getVersion());
+                case IMAGE_BASED -> virtualCardRepository.swapToImageBased(virtualCard.getId(), virtualCard.getVersion());
+            };
+            if (swapped == 0) {
+                return new ResponseEntity<>(Map.of("message", "Virtual Card was modified concurrently."), HttpStatus.CONFLICT);
+            }
+            if (data.getType() == VirtualCardType.COLOR_BASED) {
+                virtualCardImageRepository.deleteWithDataById(virtualCard.getId());
+            }
+            virtualCard = virtualCardRepository.findById(data.getId()).orElseThrow();
         }
 
-        virtualCardRepository.delete(oldVirtualCard);
-        return ResponseEntity.ok(virtualCardMapper.toDTO(virtualCardRepository.save(newVirtualCard)));
+        virtualCardMapper.replaceVirtualCard(data, virtualCard);
+        return cardResponse(saveAndSync(virtualCard));
+    }
+
+    /**
+     * Flushes so that the response and the read table carry the new version.
+     */
+    private VirtualCard saveAndSync(VirtualCard virtualCard) {
+        VirtualCard saved = virtualCardRepository.saveAndFlush(virtualCard);
+        virtualCardReadRepository.save(saved);
+        return saved;
+    }
+
+    private static VirtualCardType typeOf(VirtualCard virtualCard) {
+        return virtualCard instanceof ImageBasedVirtualCard ? VirtualCardType.IMAGE_BASED : VirtualCardType.COLOR_BASED;
+    }
+
+    /**
+     * Strong comparison of If-Match against the current ETag, an absent header matches anything.
+     */
+    private static boolean matches(String ifMatch, String eTag) {
+        if (ifMatch == null) {
+            return true;
+        }
+
+        for (String candidate : ifMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals("\"" + eTag + "\"")) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
+    @Transactional
     public ResponseEntity<?> patchCard(VirtualCardDTO data) {
         if (data.getType() == null || data.getId() == null) {
             return new ResponseEntity<>(Map.of("message", "Virtual Card TYPE and ID must be present."), HttpStatus.BAD_REQUEST);
@@ -80,41 +252,198 @@ public class VirtualCardServiceImpl implements VirtualCardService {
         }
 
         virtualCardMapper.updateVirtualCard(data, virtualCard);
+        virtualCardRenderCache.evict(virtualCard.getId());
+        virtualCardCache.evict(virtualCard.getId());
 
-        return ResponseEntity.ok(virtualCardMapper.toDTO(virtualCardRepository.save(virtualCard)));
+        return cardResponse(saveAndSync(virtualCard));
     }
 
     @Override
+    @Transactional
     public ResponseEntity<?> deleteCard(Long id) {
         if (!virtualCardRepository.existsById(id)) {
             return new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
         }
 
+        List<Long> qrCodeIds = virtualCardQRCodeRepository.findQrCodeIdsByVirtualCardId(id);
+
         virtualCardRepository.deleteById(id);
+        virtualCardImageRepository.deleteWithDataById(id);
+        virtualCardReadRepository.deleteById(id);
+        qrCodeIndex.removeAll(qrCodeIds);
+        qrCodeImageCache.evictAll(qrCodeIds);
+        virtualCardRenderCache.evict(id);
+        virtualCardCache.evict(id);
         return ResponseEntity.ok(Map.of("message", "Virtual Card deleted."));
     }
 
     @SneakyThrows
     @Override
     public ResponseEntity<?> saveImage(Long cardId, MultipartFile image) {
-        VirtualCard virtualCard = virtualCardRepository.findById(cardId).orElse(null);
-        if (!(virtualCard instanceof ImageBasedVirtualCard imageBasedVirtualCard)) {
+        try (InputStream in = image.getInputStream()) {
+            return uploadImage(cardId, in);
+        }
+    }
+
+    /**
+     * The body is read into the image store before any transaction is opened, so a slow client holds no pooled
+     * connection. The card is then pointed at the stored file in one short transaction: not a proxied
+     * {@code @Transactional} method, which the call from {@link #saveImage(Long, MultipartFile)} would bypass.
+     */
+    @SneakyThrows
+    @Override
+    public ResponseEntity<?> uploadImage(Long cardId, InputStream image) {
+        if (!(virtualCardRepository.findById(cardId).orElse(null) instanceof ImageBasedVirtualCard)) {
+            return new ResponseEntity<>(Map.of("message", "Virtual Card is not Image Based."), HttpStatus.BAD_REQUEST);
+        }
+
+        ImageStore.Stored stored;
+        try {
+            stored = imageStore.store(image, imageMaxBytes);
+        } catch (ImageRejectedException e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), e.getStatus());
+        }
+
+        VirtualCard saved = transactionTemplate.execute(status -> attachImage(cardId, stored));
+        if (saved == null) {
             return new ResponseEntity<>(Map.of("message", "Virtual Card is not Image Based."), HttpStatus.BAD_REQUEST);
         }
 
-        imageBasedVirtualCard.setImage(image.getBytes());
+        imageDerivatives.generate(stored.hash(), stored.format());
+        virtualCardRenderCache.evict(cardId);
+        virtualCardCache.evict(cardId);
+        return cardResponse(saved);
+    }
+
+    /**
+     * Returns {@code null} when the card was deleted or changed its type while the image was being stored.
+     */
+    private VirtualCard attachImage(Long cardId, ImageStore.Stored stored) {
+        if (!(virtualCardRepository.findById(cardId).orElse(null) instanceof ImageBasedVirtualCard imageBasedVirtualCard)) {
+            return null;
+        }
 
+        imageBasedVirtualCard.setImageHash(stored.hash());
+        imageBasedVirtualCard.setImageContentType(stored.format().getContentType());
         imageBasedVirtualCard.setImageURL("/virtual-card/image/get/" + imageBasedVirtualCard.getId());
-        return ResponseEntity.ok(virtualCardMapper.toDTO(virtualCardRepository.save(imageBasedVirtualCard)));
+        // A large object of a card that was never migrated is replaced now, unlink it in this transaction
+        virtualCardImageRepository.deleteWithDataById(imageBasedVirtualCard.getId());
+        return saveAndSync(imageBasedVirtualCard);
     }
 
+    @SneakyThrows
     @Override
-    public ResponseEntity<?> getImage(Long cardId) {
+    @Transactional
+    public ResponseEntity<?> getImage(Long cardId, Integer size, Double dpr) {
         VirtualCard virtualCard = virtualCardRepository.findById(cardId).orElse(null);
         if (!(virtualCard instanceof ImageBasedVirtualCard imageBasedVirtualCard)) {
             return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok(imageBasedVirtualCard.getImage());
+        if (imageBasedVirtualCard.getImageHash() == null) {
+            return ResponseEntity.ok(virtualCardImageRepository.findById(cardId).map(VirtualCardImage::getData).orElse(null));
+        }
+
+        String hash = imageBasedVirtualCard.getImageHash();
+        ImageFormat format = ImageFormat.fromContentType(imageBasedVirtualCard.getImageContentType());
+
+        ImageDerivatives.Variant variant = imageDerivatives.select(hash, format, size, dpr);
+        if (variant != null) {
+            return imageResponse(variant.path(), MediaType.parseMediaType(variant.format().getContentType()), imageBasedVirtualCard.getLastModified());
+        }
+
+        return imageResponse(imageStore.resolve(hash), format != null ? MediaType.parseMediaType(format.getContentType()) : MediaType.IMAGE_JPEG,
+                imageBasedVirtualCard.getLastModified());
+    }
+
+    /**
+     * Stored files are content-addressed, so the file name is a strong ETag. A matching conditional request gets 304
+     * from Spring MVC before the file is opened, a Range request gets 206 since {@link StoredImage} is a Resource.
+     * A file is shared by every card with the same content, so switching a card back to an older image must still
+     * move Last-Modified forward: it is the later of the card's and the file's modification times.
+     */
+    private static ResponseEntity<?> imageResponse(Path path, MediaType contentType, Instant cardLastModified) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Instant lastModified = attributes.lastModifiedTime().toInstant();
+        if (cardLastModified != null && cardLastModified.isAfter(lastModified)) {
+            lastModified = cardLastModified;
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(contentType)
+                .eTag(path.getFileName().toString())
+                .lastModified(lastModified)
+                .body(new StoredImage(path, attributes.size()));
+    }
+
+    @SneakyThrows
+    @Override
+    public ResponseEntity<?> renderCard(Long cardId, Integer width, String format, Long qrCodeId) {
+        // Only image types are producible here, so errors go without a body like in QR Code images
+        VirtualCardImageFormat imageFormat;
+        try {
+            imageFormat = VirtualCardImageFormat.resolve(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        int renderWidth = width == null ? VirtualCardRenderer.REFERENCE_WIDTH : width;
+        if (renderWidth < 1 || renderWidth > renderMaxWidth) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        VirtualCard virtualCard = virtualCardIdFilter.mightContain(cardId) ? virtualCardRepository.findById(cardId).orElse(null) : null;
+        if (virtualCard == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        QRCodeLinkDTO link = null;
+        if (qrCodeId != null) {
+            link = virtualCardQRCodeRepository.findLinkByQrCodeId(qrCodeId)
+                    .filter(found -> found.virtualCardId().equals(cardId) && found.expireTime().isAfter(LocalDateTime.now()))
+                    .orElse(null);
+            if (link == null) {
+                return ResponseEntity.notFound().build();
+            }
+        }
+
+        // Card state is part of the key, so a stale render is never served even if an eviction is missed
+        String variant = CachedVirtualCard.eTag(virtualCard) + ":" + renderWidth + "." + imageFormat.getExtension() + (link == null ? "" : ":" + qrCodeId);
+        CachedImage image = virtualCardRenderCache.get(cardId, variant);
+        if (image == null) {
+            byte[] bytes = virtualCardRenderer.render(virtualCard, backgroundImage(virtualCard, renderWidth),
+                    link == null ? null : qrCodeContents(link), renderWidth, imageFormat);
+            image = CachedImage.of(bytes, imageFormat.getMediaType(),
+                    link == null ? Instant.MAX : link.expireTime().atZone(ZoneId.systemDefault()).toInstant());
+            virtualCardRenderCache.put(cardId, variant, image);
+        }
+
+        return ResponseEntity.ok()
+                .contentType(image.mediaType())
+                .eTag(image.eTag())
+                .cacheControl(CacheControl.noCache())
+                .body(image.bytes());
+    }
+
+    private BufferedImage backgroundImage(VirtualCard virtualCard, int width) {
+        if (!(virtualCard instanceof ImageBasedVirtualCard imageBased) || imageBased.getImageHash() == null) {
+            return null;
+        }
+
+        try {
+            return imageDerivatives.load(imageBased.getImageHash(), ImageFormat.fromContentType(imageBased.getImageContentType()), width);
+        } catch (IOException e) {
+            log.warn("Image of Virtual Card {} can not be drawn: {}", virtualCard.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private String qrCodeContents(QRCodeLinkDTO link) {
+        if (!qrCodeTokenCodec.isEnabled()) {
+            return link.qrCodeId().toString();
+        }
+        return qrCodeTokenCodec.encode(link.qrCodeId(), link.virtualCardId(),
+                link.expireTime().atZone(ZoneId.systemDefault()).toEpochSecond(), link.isDisposable());
     }
 }
@@ -0,0 +1,241 @@
+package ru.clubcard.virtualcard.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Card-sized variants of uploaded images, one per configured pixel density ({@code base-width * density}).
+ * Variants are produced asynchronously on a bounded pool and stored next to the original in {@link ImageStore},
+ * keyed by image hash and width, so cards sharing an image share its variants. JPEG stays JPEG, PNG and GIF become PNG,
+ * formats ImageIO can not decode (WEBP) are always served as uploaded. An image that fails to decode is not retried
+ * for {@code undecodable-ttl}, other failures (e.g. writing a variant) are retried on a later read.
+ */
+@Component
+@Slf4j
+public class ImageDerivatives {
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ImageStore imageStore;
+    private final ExecutorService imageDerivativePool;
+    private final int baseWidth;
+    private final int[] widths;
+    private final long maxPixels;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Cache<String, Boolean> undecodable;
+
+    public record Variant(Path path, ImageFormat format) {
+    }
+
+    public ImageDerivatives(ImageStore imageStore, ExecutorService imageDerivativePool,
+                            @Value("${clubcard.image-store.derivative.base-width}") int baseWidth,
+                            @Value("${clubcard.image-store.derivative.densities}") int[] densities,
+                            @Value("${clubcard.image-store.derivative.max-pixels}") long maxPixels,
+                            @Value("${clubcard.image-store.derivative.undecodable-max-size}") long undecodableMaxSize,
+                            @Value("${clubcard.image-store.derivative.undecodable-ttl}") Duration undecodableTtl) {
+        this.imageStore = imageStore;
+        this.imageDerivativePool = imageDerivativePool;
+        this.baseWidth = baseWidth;
+        this.widths = Arrays.stream(densities).map(density -> density * baseWidth).sorted().distinct().toArray();
+        this.maxPixels = maxPixels;
+        this.undecodable = Caffeine.newBuilder()
+                .maximumSize(undecodableMaxSize)
+                .expireAfterWrite(undecodableTtl)
+                .build();
+    }
+
+    /**
+     * Schedules all variants of the image, dropped (and retried on a later read) when the pool queue is full.
+     */
+    public void generate(String hash, ImageFormat format) {
+        if (derivedFormat(format) == null || undecodable.getIfPresent(hash) != null || !pending.add(hash)) {
+            return;
+        }
+
+        try {
+            imageDerivativePool.execute(() -> {
+                try {
+                    write(hash, format);
+                } catch (UndecodableImageException e) {
+                    undecodable.put(hash, Boolean.TRUE);
+                    log.warn("Variants of image {} were not generated, it can not be decoded", hash, e.getCause());
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Variants of image {} were not generated", hash, e);
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(hash);
+            log.debug("Variants of image {} postponed, derivative queue is full", hash);
+        }
+    }
+
+    /**
+     * Returns the smallest variant at least {@code size * dpr} pixels wide, or {@code null} to serve the original:
+     * neither parameter given, request above the largest variant, or variant not generated yet (it is scheduled then).
+     */
+    public Variant select(String hash, ImageFormat format, Integer size, Double dpr) {
+        ImageFormat derivedFormat = derivedFormat(format);
+        if ((size == null && dpr == null) || derivedFormat == null) {
+            return null;
+        }
+
+        double requested = (size != null ? size : baseWidth) * (dpr != null ? dpr : 1.0);
+        for (int width : widths) {
+            if (width >= requested) {
+                Path path = imageStore.resolveDerivative(hash, suffix(width, derivedFormat));
+                if (Files.exists(path)) {
+                    return new Variant(path, derivedFormat);
+                }
+                generate(hash, format);
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the image for drawing at {@code width}: the matching variant when generated, otherwise the original
+     * with subsampling.
+     */
+    public BufferedImage load(String hash, ImageFormat format, int width) throws IOException {
+        Variant variant = select(hash, format, width, null);
+        return read(variant != null ? variant.path() : imageStore.resolve(hash), width);
+    }
+
+    private void write(String hash, ImageFormat format) throws IOException {
+        ImageFormat derivedFormat = derivedFormat(format);
+        BufferedImage source;
+        try {
+            source = read(imageStore.resolve(hash), widths[widths.length - 1]);
+        } catch (IOException | RuntimeException e) {
+            throw new UndecodableImageException(e);
+        }
+
+        for (int width : widths) {
+            BufferedImage resized = resize(source, width, derivedFormat);
+            imageStore.storeDerivative(hash, suffix(width, derivedFormat), out -> encode(resized, derivedFormat, out));
+        }
+    }
+
+    /**
+     * Decodes with source subsampling, so a huge photo never expands into full resolution pixels in heap.
+     * Images declaring more than {@code max-pixels} are refused before decoding.
+     */
+    private BufferedImage read(Path path, int maxWidth) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + path);
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image is too large to decode: " + width + "x" + height);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / (maxWidth * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Halves the image until the target width is reached (bilinear steps keep quality close to bicubic at a
+     * fraction of its cost). Never upscales.
+     */
+    static BufferedImage resize(BufferedImage source, int width, ImageFormat format) {
+        int type = format == ImageFormat.JPEG ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        int targetWidth = Math.min(width, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = next;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+
+        return current;
+    }
+
+    private static void encode(BufferedImage image, ImageFormat format, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format.name()).next();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format == ImageFormat.JPEG) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static ImageFormat derivedFormat(ImageFormat format) {
+        if (format == null) {
+            return null;
+        }
+        return switch (format) {
+            case JPEG -> ImageFormat.JPEG;
+            case PNG, GIF -> ImageFormat.PNG;
+            case WEBP -> null;
+        };
+    }
+
+    private static String suffix(int width, ImageFormat format) {
+        return width + "w." + format.name().toLowerCase();
+    }
+
+    private static class UndecodableImageException extends IOException {
+        private UndecodableImageException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.clubcard.virtualcard.storage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Image formats accepted for upload, detected from the leading bytes rather than the client supplied Content-Type.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageFormat {
+    JPEG("image/jpeg"),
+    PNG("image/png"),
+    GIF("image/gif"),
+    WEBP("image/webp");
+
+    /**
+     * Number of leading bytes needed by {@link #sniff(byte[], int)}.
+     */
+    public static final int HEAD_LENGTH = 12;
+
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF_SIGNATURE = "GIF8".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RIFF_SIGNATURE = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEBP_SIGNATURE = "WEBP".getBytes(StandardCharsets.US_ASCII);
+
+    private final String contentType;
+
+    public static ImageFormat fromContentType(String contentType) {
+        for (ImageFormat format : values()) {
+            if (format.contentType.equals(contentType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    public static ImageFormat sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0, JPEG_SIGNATURE)) {
+            return JPEG;
+        }
+        if (startsWith(head, length, 0, PNG_SIGNATURE)) {
+            return PNG;
+        }
+        if (startsWith(head, length, 0, GIF_SIGNATURE)) {
+            return GIF;
+        }
+        if (startsWith(head, length, 0, RIFF_SIGNATURE) && startsWith(head, length, 8, WEBP_SIGNATURE)) {
+            return WEBP;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, byte[] signature) {
+        return length >= offset + signature.length
+                && Arrays.equals(head, offset, offset + signature.length, signature, 0, signature.length);
+    }
+}
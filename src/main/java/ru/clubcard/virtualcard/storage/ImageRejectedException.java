@@ -0,0 +1,16 @@
+package ru.clubcard.virtualcard.storage;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+
+@Getter
+public class ImageRejectedException extends IOException {
+    private final HttpStatus status;
+
+    public ImageRejectedException(String message, HttpStatus status) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,185 @@
+package ru.clubcard.virtualcard.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image files: {@code <root>/<first 2 hex chars>/<sha-256 hex>}. Identical uploads share one file,
+ * files are written to a temporary file first and atomically moved into place, so readers never see partial content.
+ * Storing content that already exists refreshes the file's modification time, {@code ImageStoreSweeper} only deletes
+ * files that were not stored again for its grace period.
+ */
+@Component
+public class ImageStore {
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tmp;
+
+    public record Stored(String hash, long size, ImageFormat format) {
+    }
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    public ImageStore(@Value("${clubcard.image-store.path}") Path root) throws IOException {
+        this.root = root.toAbsolutePath();
+        this.tmp = Files.createDirectories(this.root.resolve("tmp"));
+    }
+
+    /**
+     * Copies the stream in fixed-size chunks while hashing it, so memory use does not depend on the image size.
+     * The format is sniffed from the first chunk and the copy is aborted as soon as {@code maxBytes} is exceeded.
+     */
+    public Stored store(InputStream in, long maxBytes) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[CHUNK_SIZE];
+
+        int length = in.readNBytes(buffer, 0, ImageFormat.HEAD_LENGTH);
+        ImageFormat format = ImageFormat.sniff(buffer, length);
+        if (format == null) {
+            throw new ImageRejectedException("Image must be JPEG, PNG, GIF or WEBP.", HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+
+        Path temp = Files.createTempFile(tmp, "upload", ".tmp");
+        try {
+            long size = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (length > 0) {
+                    size += length;
+                    if (size > maxBytes) {
+                        throw new ImageRejectedException("Image must not exceed " + maxBytes + " bytes.", HttpStatus.PAYLOAD_TOO_LARGE);
+                    }
+
+                    digest.update(buffer, 0, length);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, length);
+                    while (chunk.hasRemaining()) {
+                        out.write(chunk);
+                    }
+                    length = in.read(buffer);
+                }
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(hash);
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Same content stored concurrently
+                }
+            }
+            return new Stored(hash, size, format);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Stored store(byte[] bytes) throws IOException {
+        return store(new ByteArrayInputStream(bytes), Long.MAX_VALUE);
+    }
+
+    /**
+     * Writes a derived file (e.g. a resized variant) next to the original image, replacing an existing one.
+     */
+    public void storeDerivative(String hash, String suffix, Writer writer) throws IOException {
+        Path target = resolveDerivative(hash, suffix);
+        Path temp = Files.createTempFile(tmp, "derivative", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Path resolve(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid image hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    public Path resolveDerivative(String hash, String suffix) {
+        return resolve(hash).resolveSibling(hash + "_" + suffix);
+    }
+
+    /**
+     * Hashes of original images last modified before {@code cutoff}, grouped by shard directory so a caller
+     * never holds the whole store in memory.
+     */
+    public List<List<String>> hashesModifiedBefore(Instant cutoff) throws IOException {
+        List<List<String>> shards = new ArrayList<>();
+        try (DirectoryStream<Path> shardDirs = Files.newDirectoryStream(root, path -> SHARD.matcher(path.getFileName().toString()).matches())) {
+            for (Path shardDir : shardDirs) {
+                List<String> hashes = new ArrayList<>();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shardDir, path -> HASH.matcher(path.getFileName().toString()).matches())) {
+                    for (Path file : files) {
+                        if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                            hashes.add(file.getFileName().toString());
+                        }
+                    }
+                }
+                shards.add(hashes);
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Deletes the image and its derived files unless it was stored again since {@code cutoff}.
+     * Derived files go first, so none outlives its original.
+     */
+    public boolean deleteIfModifiedBefore(String hash, Instant cutoff) throws IOException {
+        Path original = resolve(hash);
+        if (!Files.exists(original) || !Files.getLastModifiedTime(original).toInstant().isBefore(cutoff)) {
+            return false;
+        }
+
+        try (DirectoryStream<Path> derivatives = Files.newDirectoryStream(original.getParent(), hash + "_*")) {
+            for (Path derivative : derivatives) {
+                Files.deleteIfExists(derivative);
+            }
+        }
+        return Files.deleteIfExists(original);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.clubcard.virtualcard.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.clubcard.virtualcard.entity.card.ImageBasedVirtualCard;
+import ru.clubcard.virtualcard.entity.card.VirtualCardImage;
+import ru.clubcard.virtualcard.repository.VirtualCardImageRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Moves images still kept in the database ({@link VirtualCardImage}) into the {@link ImageStore} on startup,
+ * one card per transaction. Images that can not be stored stay in the database and are still served from there.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageStoreMigration {
+    private final VirtualCardRepository virtualCardRepository;
+    private final VirtualCardImageRepository virtualCardImageRepository;
+    private final VirtualCardReadRepository virtualCardReadRepository;
+    private final ImageStore imageStore;
+    private final ImageDerivatives imageDerivatives;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${clubcard.image-store.migration.page-size}")
+    private int pageSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        long startTime = System.currentTimeMillis();
+        int migrated = 0;
+
+        long afterId = 0;
+        List<Long> page;
+        do {
+            page = virtualCardImageRepository.findIdsAfter(afterId, PageRequest.of(0, pageSize));
+            for (Long id : page) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> migrate(id));
+                    migrated++;
+                } catch (RuntimeException e) {
+                    log.warn("Image of Virtual Card {} was not moved to image store", id, e);
+                }
+                afterId = id;
+            }
+        } while (page.size() == pageSize);
+
+        if (migrated > 0) {
+            log.info("Moved {} images to image store in {} ms", migrated, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void migrate(Long id) {
+        VirtualCardImage virtualCardImage = virtualCardImageRepository.findById(id).orElse(null);
+        if (virtualCardImage == null) {
+            return;
+        }
+
+        if (virtualCardRepository.findById(id).orElse(null) instanceof ImageBasedVirtualCard card
+                && card.getImageHash() == null && virtualCardImage.getData() != null) {
+            try {
+                ImageStore.Stored stored = imageStore.store(virtualCardImage.getData());
+                card.setImageHash(stored.hash());
+                card.setImageContentType(stored.format().getContentType());
+                imageDerivatives.generate(stored.hash(), stored.format());
+                virtualCardReadRepository.save(virtualCardRepository.saveAndFlush(card));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        virtualCardImageRepository.deleteWithDataById(id);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.clubcard.virtualcard.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Deletes stored images (and their derived files) no Image Based card refers to any more. Only files not stored again
+ * for {@code grace-period} are candidates, which covers uploads whose card update has not committed yet.
+ * <p>
+ * Referenced hashes are read once per run as sorted 8-byte prefixes: a few MB for millions of images, and a prefix
+ * collision can only keep a file, never delete a referenced one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageStoreSweeper {
+    private final ImageStore imageStore;
+    private final VirtualCardRepository virtualCardRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${clubcard.image-store.sweep.enabled}")
+    private boolean enabled;
+
+    @Value("${clubcard.image-store.sweep.grace-period}")
+    private Duration gracePeriod;
+
+    @Scheduled(initialDelayString = "${clubcard.image-store.sweep.interval}", fixedDelayString = "${clubcard.image-store.sweep.interval}")
+    public void sweep() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        long[] referenced = transactionTemplate.execute(status -> {
+            try (Stream<String> hashes = virtualCardRepository.streamImageHashes()) {
+                return hashes.mapToLong(ImageStoreSweeper::prefix).sorted().toArray();
+            }
+        });
+
+        int deleted = 0;
+        for (List<String> shard : imageStore.hashesModifiedBefore(cutoff)) {
+            for (String hash : shard) {
+                if (Arrays.binarySearch(referenced, prefix(hash)) < 0 && imageStore.deleteIfModifiedBefore(hash, cutoff)) {
+                    deleted++;
+                }
+            }
+        }
+
+        if (deleted > 0) {
+            log.info("Deleted {} unreferenced images from image store in {} ms", deleted, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private static long prefix(String hash) {
+        return HexFormat.fromHexDigitsToLong(hash, 0, 16);
+    }
+}
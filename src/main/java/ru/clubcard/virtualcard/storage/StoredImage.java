@@ -0,0 +1,23 @@
+package ru.clubcard.virtualcard.storage;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Path;
+
+/**
+ * Response body pointing at an {@link ImageStore} file, written by {@link StoredImageHttpMessageConverter}.
+ * Being a {@link org.springframework.core.io.Resource}, Range requests are answered by Spring MVC with 206 regions.
+ */
+public class StoredImage extends FileSystemResource {
+    private final long size;
+
+    public StoredImage(Path path, long size) {
+        super(path);
+        this.size = size;
+    }
+
+    @Override
+    public long contentLength() {
+        return size;
+    }
+}
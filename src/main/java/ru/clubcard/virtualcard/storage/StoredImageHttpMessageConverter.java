@@ -0,0 +1,69 @@
+package ru.clubcard.virtualcard.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes {@link StoredImage} without reading it into heap: hands the file to Tomcat sendfile when the connector
+ * supports it (the body is then sent by the kernel after the handler returns), otherwise copies it with
+ * {@link FileChannel#transferTo}.
+ */
+@Component
+public class StoredImageHttpMessageConverter extends AbstractHttpMessageConverter<StoredImage> {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public StoredImageHttpMessageConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StoredImage.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected Long getContentLength(StoredImage image, MediaType contentType) {
+        return image.contentLength();
+    }
+
+    @Override
+    protected StoredImage readInternal(Class<? extends StoredImage> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Stored image can not be read from request.", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(StoredImage image, HttpOutputMessage outputMessage) throws IOException {
+        HttpServletRequest request = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest() : null;
+
+        if (request != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, image.getPath());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, image.contentLength());
+            return;
+        }
+
+        long size = image.contentLength();
+        try (FileChannel channel = FileChannel.open(image.getFile().toPath())) {
+            WritableByteChannel out = Channels.newChannel(outputMessage.getBody());
+            for (long position = 0; position < size; ) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.clubcard.virtualcard.token;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.clubcard.virtualcard.entity.qrcode.RevokedQRCode;
+import ru.clubcard.virtualcard.repository.RevokedQRCodeRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deleted QR Codes whose signed tokens have not expired yet. Revocations are stored in the database and mirrored
+ * in memory, other application instances pick them up within the refresh interval. Entries are dropped once the
+ * token expires, so the set stays small.
+ * <p>
+ * A token revoked on another instance stays valid here for at most one refresh interval plus the time one refresh
+ * takes. The refresh runs on its own thread, so the shared scheduling pool (index reload, reaper, migrations) can not
+ * delay it beyond that.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QRCodeRevocations {
+    private final RevokedQRCodeRepository revokedQRCodeRepository;
+    private final QRCodeTokenCodec qrCodeTokenCodec;
+
+    private final Map<Long, Long> revoked = new ConcurrentHashMap<>();
+
+    @Value("${clubcard.qr-code.token.revocation-refresh-interval}")
+    private Duration refreshInterval;
+
+    private ScheduledExecutorService refresher;
+
+    public boolean isRevoked(long qrCodeId) {
+        return revoked.containsKey(qrCodeId);
+    }
+
+    public void revoke(long qrCodeId, LocalDateTime expireTime) {
+        if (!qrCodeTokenCodec.isEnabled()) {
+            return;
+        }
+
+        revokedQRCodeRepository.save(new RevokedQRCode(qrCodeId, expireTime));
+        revoked.put(qrCodeId, toEpochSecond(expireTime));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refresh();
+
+        if (qrCodeTokenCodec.isEnabled()) {
+            refresher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("qr-code-revocations-"));
+            refresher.scheduleWithFixedDelay(this::scheduledRefresh, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    public void refresh() {
+        if (!qrCodeTokenCodec.isEnabled()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        revokedQRCodeRepository.deleteExpired(now);
+
+        List<RevokedQRCode> active = revokedQRCodeRepository.findAllByExpireTimeAfter(now);
+        active.forEach(revokedQRCode -> revoked.put(revokedQRCode.getQrCodeId(), toEpochSecond(revokedQRCode.getExpireTime())));
+
+        long nowEpochSecond = Instant.now().getEpochSecond();
+        revoked.values().removeIf(expireEpochSecond -> expireEpochSecond <= nowEpochSecond);
+        log.debug("QR Code revocations refreshed, {} active", revoked.size());
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // A failed run must not cancel the following ones
+            log.warn("QR Code revocations were not refreshed", e);
+        }
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
@@ -0,0 +1,7 @@
+package ru.clubcard.virtualcard.token;
+
+public record QRCodeToken(long qrCodeId, long virtualCardId, long expireEpochSecond, boolean disposable) {
+    public boolean isExpired(long nowEpochSecond) {
+        return expireEpochSecond <= nowEpochSecond;
+    }
+}
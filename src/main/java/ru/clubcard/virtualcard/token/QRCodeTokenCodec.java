@@ -0,0 +1,106 @@
+package ru.clubcard.virtualcard.token;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Encodes QR Code payload as a signed token, so that check can verify it without a database lookup.
+ * Layout: version (1) | QR Code ID (8) | Virtual Card ID (8) | expire time, unsigned epoch seconds (4) | flags (1)
+ * followed by HMAC-SHA256 of those bytes truncated to 16 bytes, everything Base64URL encoded (51 characters).
+ * QR Code ID doubles as a nonce and is the key for revocation and disposable consumption.
+ */
+@Component
+public class QRCodeTokenCodec {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int PAYLOAD_LENGTH = 1 + 8 + 8 + 4 + 1;
+    private static final int TAG_LENGTH = 16;
+    private static final int FLAG_DISPOSABLE = 1;
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private final boolean enabled;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
+    public QRCodeTokenCodec(@Value("${clubcard.qr-code.token.enabled}") boolean enabled,
+                            @Value("${clubcard.qr-code.token.secret}") String secret) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (enabled && secretBytes.length < MIN_SECRET_LENGTH) {
+            throw new IllegalStateException("QR Code token secret must be at least " + MIN_SECRET_LENGTH + " bytes long.");
+        }
+
+        this.enabled = enabled;
+        this.key = enabled ? new SecretKeySpec(secretBytes, ALGORITHM) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String encode(long qrCodeId, long virtualCardId, long expireEpochSecond, boolean disposable) {
+        byte[] token = new byte[PAYLOAD_LENGTH + TAG_LENGTH];
+        ByteBuffer.wrap(token)
+                .put(VERSION)
+                .putLong(qrCodeId)
+                .putLong(virtualCardId)
+                .putInt((int) expireEpochSecond)
+                .put((byte) (disposable ? FLAG_DISPOSABLE : 0));
+
+        System.arraycopy(sign(token), 0, token, PAYLOAD_LENGTH, TAG_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Returns null for malformed, foreign or tampered tokens and when token mode is disabled.
+     */
+    public QRCodeToken decode(String value) {
+        if (!enabled || value == null) {
+            return null;
+        }
+
+        byte[] token;
+        try {
+            token = Base64.getUrlDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        if (token.length != PAYLOAD_LENGTH + TAG_LENGTH || token[0] != VERSION) {
+            return null;
+        }
+
+        byte[] tag = Arrays.copyOf(sign(token), TAG_LENGTH);
+        if (!MessageDigest.isEqual(tag, Arrays.copyOfRange(token, PAYLOAD_LENGTH, token.length))) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(token, 1, PAYLOAD_LENGTH - 1);
+        return new QRCodeToken(buffer.getLong(), buffer.getLong(), Integer.toUnsignedLong(buffer.getInt()),
+                (buffer.get() & FLAG_DISPOSABLE) != 0);
+    }
+
+    private byte[] sign(byte[] token) {
+        Mac local = mac.get();
+        local.update(token, 0, PAYLOAD_LENGTH);
+        return local.doFinal();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
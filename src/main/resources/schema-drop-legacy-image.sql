@@ -0,0 +1,17 @@
+-- Second step of moving card images out of image_based_virtual_card, see schema.sql. Run once no instance of the
+-- release that still maps the image column is left, e.g. by adding it to spring.sql.init.schema-locations.
+-- Large objects kept alive for those instances are unlinked unless virtual_card_image still refers to them.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = 'virtualcard' AND table_name = 'image_based_virtual_card' AND column_name = 'image') THEN
+        PERFORM lo_unlink(b.image)
+        FROM virtualcard.image_based_virtual_card b
+        WHERE b.image IS NOT NULL
+          AND NOT EXISTS (SELECT 1 FROM virtualcard.virtual_card_image i WHERE i.data = b.image)
+          AND EXISTS (SELECT 1 FROM pg_largeobject_metadata m WHERE m.oid = b.image);
+
+        ALTER TABLE virtualcard.image_based_virtual_card DROP COLUMN image;
+    END IF;
+END $$;
@@ -0,0 +1,18 @@
+-- QR Codes and their links range-partitioned by expire time, partitions are managed by QRCodePartitionManager.
+-- Meant for a fresh database: existing plain tables are not converted. Primary keys must include the partition key,
+-- so the foreign key from links to QR Codes cannot be created and Hibernate logs a warning for it on startup;
+-- links are always deleted together with their QR Code by the application queries instead.
+
+CREATE TABLE IF NOT EXISTS virtualcard.qrcode (
+    id bigint NOT NULL DEFAULT nextval('virtualcard.qrcode_id_seq'),
+    is_disposable boolean NOT NULL,
+    expire_time timestamp(6) NOT NULL,
+    PRIMARY KEY (id, expire_time)
+) PARTITION BY RANGE (expire_time);
+
+CREATE TABLE IF NOT EXISTS virtualcard.virtual_cardqrcode (
+    virtual_card_id bigint NOT NULL,
+    qr_code_id bigint NOT NULL,
+    expire_time timestamp(6) NOT NULL,
+    PRIMARY KEY (virtual_card_id, qr_code_id, expire_time)
+) PARTITION BY RANGE (expire_time);
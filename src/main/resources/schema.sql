@@ -1,3 +1,78 @@
 CREATE SCHEMA IF NOT EXISTS virtualcard;
 
-CREATE SEQUENCE IF NOT EXISTS virtualcard.virtual_card_id_seq;
\ No newline at end of file
+CREATE SEQUENCE IF NOT EXISTS virtualcard.virtual_card_id_seq INCREMENT BY 50;
+ALTER SEQUENCE virtualcard.virtual_card_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS virtualcard.qrcode_id_seq INCREMENT BY 50;
+ALTER SEQUENCE virtualcard.qrcode_id_seq INCREMENT BY 50;
+
+-- QR Codes created with IDENTITY keep their IDs, the pooled sequence continues above them
+DO $$
+BEGIN
+    IF to_regclass('virtualcard.qrcode') IS NOT NULL THEN
+        PERFORM setval('virtualcard.qrcode_id_seq', GREATEST(
+                COALESCE((SELECT max(id) FROM virtualcard.qrcode), 1),
+                (SELECT last_value FROM virtualcard.qrcode_id_seq)));
+    END IF;
+END $$;
+
+-- Card images were a LOB column of the card itself, fetched with every card read. They live in their own table
+-- until ImageStoreMigration moves them to the image store. The legacy image column is no longer read but stays
+-- for instances of the previous release during a rolling upgrade, schema-drop-legacy-image.sql removes it later.
+CREATE TABLE IF NOT EXISTS virtualcard.virtual_card_image (
+    virtual_card_id BIGINT PRIMARY KEY,
+    data OID
+);
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = 'virtualcard' AND table_name = 'image_based_virtual_card' AND column_name = 'image') THEN
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = 'virtualcard' AND table_name = 'image_based_virtual_card' AND column_name = 'image_hash') THEN
+            INSERT INTO virtualcard.virtual_card_image (virtual_card_id, data)
+            SELECT id, image FROM virtualcard.image_based_virtual_card WHERE image IS NOT NULL AND image_hash IS NULL
+            ON CONFLICT DO NOTHING;
+        ELSE
+            INSERT INTO virtualcard.virtual_card_image (virtual_card_id, data)
+            SELECT id, image FROM virtualcard.image_based_virtual_card WHERE image IS NOT NULL
+            ON CONFLICT DO NOTHING;
+        END IF;
+    END IF;
+END $$;
+
+-- Unlinks a large object of virtual_card_image unless the legacy image column of the same card still points to it,
+-- those are unlinked by schema-drop-legacy-image.sql. Returns the number of unlinked objects.
+CREATE OR REPLACE FUNCTION virtualcard.unlink_card_image(card_id BIGINT, image_oid OID) RETURNS INTEGER AS $$
+BEGIN
+    IF image_oid IS NULL THEN
+        RETURN 0;
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = 'virtualcard' AND table_name = 'image_based_virtual_card' AND column_name = 'image') THEN
+        IF EXISTS (SELECT 1 FROM virtualcard.image_based_virtual_card WHERE id = card_id AND image = image_oid) THEN
+            RETURN 0;
+        END IF;
+    END IF;
+    PERFORM lo_unlink(image_oid);
+    RETURN 1;
+END $$ LANGUAGE plpgsql;
+
+-- Denormalized copy of virtual_card and its subtype tables for lookups by ID, see VirtualCardReadRepository.
+-- type is the VirtualCardType ordinal, the other columns mirror the JOINED tables.
+CREATE TABLE IF NOT EXISTS virtualcard.virtual_card_read (
+    id BIGINT PRIMARY KEY,
+    type SMALLINT NOT NULL,
+    user_id BIGINT,
+    privilege SMALLINT,
+    status SMALLINT,
+    id_text BYTEA,
+    username_text BYTEA,
+    privilege_text BYTEA,
+    role_text BYTEA,
+    text_color VARCHAR(255),
+    background_color VARCHAR(255),
+    image_url VARCHAR(255),
+    version BIGINT,
+    last_modified TIMESTAMP(6) WITH TIME ZONE
+);
@@ -0,0 +1,144 @@
+package ru.clubcard.virtualcard.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.clubcard.virtualcard.TestDataLoader;
+import ru.clubcard.virtualcard.entity.card.ImageBasedVirtualCard;
+import ru.clubcard.virtualcard.entity.card.VirtualCardImage;
+import ru.clubcard.virtualcard.entity.card.dto.ImageBasedVirtualCardDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+import ru.clubcard.virtualcard.repository.VirtualCardImageRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+import ru.clubcard.virtualcard.service.QRCodeService;
+import ru.clubcard.virtualcard.service.VirtualCardService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asserts that card metadata paths never touch the image LOB.
+ */
+@SpringBootTest
+@Testcontainers
+public class LobFetchIntegrationTest {
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("test");
+
+    @DynamicPropertySource
+    public static void overrideProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector", RecordingStatementInspector.class::getName);
+    }
+
+    @Autowired
+    private VirtualCardService virtualCardService;
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private VirtualCardRepository virtualCardRepository;
+
+    @Autowired
+    private VirtualCardImageRepository virtualCardImageRepository;
+
+    @Autowired
+    private VirtualCardMapper virtualCardMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void afterEach() {
+        virtualCardImageRepository.deleteAll();
+        virtualCardRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    @Test
+    public void testMetadataPaths_Skip_Image() {
+        ImageBasedVirtualCardDTO data = new ObjectMapper().readValue(
+                TestDataLoader.loadData("/test/image-based-custom.json"),
+                ImageBasedVirtualCardDTO.class);
+        ImageBasedVirtualCard virtualCard = virtualCardRepository.save(virtualCardMapper.toImageBased(data));
+        virtualCardImageRepository.save(new VirtualCardImage(virtualCard.getId(), new byte[1024 * 1024]));
+        RecordingStatementInspector.STATEMENTS.clear();
+
+        assertEquals(HttpStatus.OK, virtualCardService.getCard(virtualCard.getId()).getStatusCode());
+
+        data.setTextColor("orange");
+        assertEquals(HttpStatus.OK, virtualCardService.patchCard(data).getStatusCode());
+
+        ResponseEntity<?> generated = qrCodeService.generate(virtualCard.getId(), false);
+        assertEquals(HttpStatus.OK, generated.getStatusCode());
+
+        Long qrCodeId = (Long) ((Map<?, ?>) generated.getBody()).get("id");
+        assertEquals(HttpStatus.OK, qrCodeService.check(qrCodeId).getStatusCode());
+
+        List<String> statements = List.copyOf(RecordingStatementInspector.STATEMENTS);
+        assertFalse(statements.isEmpty());
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("virtual_card_image")), statements::toString);
+    }
+
+    @SneakyThrows
+    @Test
+    public void testDeleteWithData_Keeps_Object_Of_Legacy_Column() {
+        ImageBasedVirtualCard virtualCard = virtualCardRepository.save(virtualCardMapper.toImageBased(new ObjectMapper().readValue(
+                TestDataLoader.loadData("/test/image-based-custom.json"),
+                ImageBasedVirtualCardDTO.class)));
+        Long legacy = jdbcTemplate.queryForObject("SELECT lo_from_bytea(0, '\\x01')", Long.class);
+        Long moved = jdbcTemplate.queryForObject("SELECT lo_from_bytea(0, '\\x02')", Long.class);
+
+        try {
+            jdbcTemplate.execute("ALTER TABLE virtualcard.image_based_virtual_card ADD COLUMN image OID");
+            jdbcTemplate.update("UPDATE virtualcard.image_based_virtual_card SET image = ? WHERE id = ?", legacy, virtualCard.getId());
+
+            jdbcTemplate.update("INSERT INTO virtualcard.virtual_card_image (virtual_card_id, data) VALUES (?, ?)", virtualCard.getId(), legacy);
+            assertEquals(0, virtualCardImageRepository.deleteWithDataById(virtualCard.getId()));
+            assertTrue(largeObjectExists(legacy));
+
+            jdbcTemplate.update("INSERT INTO virtualcard.virtual_card_image (virtual_card_id, data) VALUES (?, ?)", virtualCard.getId(), moved);
+            assertEquals(1, virtualCardImageRepository.deleteWithDataById(virtualCard.getId()));
+            assertFalse(largeObjectExists(moved));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE virtualcard.image_based_virtual_card DROP COLUMN IF EXISTS image");
+            if (largeObjectExists(legacy)) {
+                jdbcTemplate.queryForObject("SELECT lo_unlink(?)", Integer.class, legacy);
+            }
+        }
+    }
+
+    private boolean largeObjectExists(Long oid) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_largeobject_metadata WHERE oid = ?::oid)", Boolean.class, oid));
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
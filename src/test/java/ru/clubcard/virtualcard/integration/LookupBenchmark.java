@@ -0,0 +1,61 @@
+package ru.clubcard.virtualcard.integration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongConsumer;
+
+/**
+ * Seeding and reporting shared by the lookup benchmarks. Cards are inserted with plain SQL, {@code CLUBCARD_BENCHMARK_CARDS}
+ * overrides the default count. Lookups hit random IDs from a fixed seed, so runs are comparable.
+ */
+public class LookupBenchmark {
+    private static final int WARMUP_LOOKUPS = 5_000;
+    private static final int MEASURED_LOOKUPS = 50_000;
+
+    public static long cards(long defaultCards) {
+        return Long.parseLong(System.getenv().getOrDefault("CLUBCARD_BENCHMARK_CARDS", String.valueOf(defaultCards)));
+    }
+
+    /**
+     * Inserts cards 1..{@code cards} with every text column set to {@code text}, even IDs Color Based and odd IDs
+     * Image Based.
+     */
+    public static void seed(JdbcTemplate jdbcTemplate, long cards, byte[] text) {
+        jdbcTemplate.update("""
+                INSERT INTO virtualcard.virtual_card (id, user_id, privilege, status, id_text, username_text, privilege_text, role_text, version, last_modified)
+                SELECT id, id % 100000, 0, 0, ?, ?, ?, ?, 0, now() FROM generate_series(1, ?) id""", text, text, text, text, cards);
+        jdbcTemplate.update("""
+                INSERT INTO virtualcard.color_based_virtual_card (id, text_color, background_color)
+                SELECT id, '#000000', '#FFFFFF' FROM generate_series(2, ?, 2) id""", cards);
+        jdbcTemplate.update("""
+                INSERT INTO virtualcard.image_based_virtual_card (id, text_color, image_url)
+                SELECT id, '#FFFFFF', '/virtual-card/image/get/' || id FROM generate_series(1, ?, 2) id""", cards);
+    }
+
+    /**
+     * Runs {@code lookup} for random IDs in 1..{@code cards} and prints mean, p50, p99 and p99.9 latency.
+     */
+    public static void report(String name, long cards, LongConsumer lookup) {
+        Random random = new Random(42);
+        for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+            lookup.accept(1 + (long) (random.nextDouble() * cards));
+        }
+
+        long[] nanos = new long[MEASURED_LOOKUPS];
+        for (int i = 0; i < MEASURED_LOOKUPS; i++) {
+            long id = 1 + (long) (random.nextDouble() * cards);
+            long start = System.nanoTime();
+            lookup.accept(id);
+            nanos[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(nanos);
+        System.out.printf("%s, %d cards: mean %.1f us, p50 %.1f us, p99 %.1f us, p99.9 %.1f us%n", name, cards,
+                Arrays.stream(nanos).average().orElse(0) / 1000,
+                nanos[MEASURED_LOOKUPS / 2] / 1000.0,
+                nanos[(int) (MEASURED_LOOKUPS * 0.99)] / 1000.0,
+                nanos[(int) (MEASURED_LOOKUPS * 0.999)] / 1000.0);
+    }
+}
@@ -1,5 +1,6 @@
 package ru.clubcard.virtualcard.integration;
 
+import lombok.SneakyThrows;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,22 +11,27 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import ru.clubcard.virtualcard.entity.VirtualCardQRCode;
 import ru.clubcard.virtualcard.entity.card.ColorBasedVirtualCard;
 import ru.clubcard.virtualcard.entity.qrcode.QRCode;
+import ru.clubcard.virtualcard.image.QRCodeImageFormat;
 import ru.clubcard.virtualcard.repository.QRCodeRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardQRCodeRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardRepository;
 import ru.clubcard.virtualcard.service.QRCodeService;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @Testcontainers
@@ -89,7 +95,7 @@ public class QRCodeServiceIntegrationTest {
     public void getQR_Successful() {
         qrCodeRepository.save(qrCode);
 
-        ResponseEntity<?> response = qrCodeService.get(qrCode.getId());
+        ResponseEntity<?> response = qrCodeService.get(qrCode.getId(), QRCodeImageFormat.PNG);
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
@@ -97,7 +103,7 @@ public class QRCodeServiceIntegrationTest {
     public void getQR_Not_Found() {
         qrCodeRepository.save(qrCode);
 
-        ResponseEntity<?> response = qrCodeService.get(Long.MAX_VALUE);
+        ResponseEntity<?> response = qrCodeService.get(Long.MAX_VALUE, QRCodeImageFormat.PNG);
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
@@ -121,14 +127,34 @@ public class QRCodeServiceIntegrationTest {
     public void getQRInfo_Not_Found() {
         qrCodeRepository.save(qrCode);
 
-        ResponseEntity<?> response = qrCodeService.get(Long.MAX_VALUE);
+        ResponseEntity<?> response = qrCodeService.get(Long.MAX_VALUE, QRCodeImageFormat.PNG);
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
+    @SneakyThrows
     @Test
     public void getAllInfo_Empty() {
-        ResponseEntity<?> response = qrCodeService.getAllInfo(1L);
-        assertEquals(List.of(), response.getBody());
+        ResponseEntity<?> response = qrCodeService.getAllInfo(1L, null, null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        assertEquals("[]", out.toString());
+    }
+
+    @SneakyThrows
+    @Test
+    public void getAllInfo_Paged() {
+        QRCode second = QRCode.builder().isDisposable(true).expireTime(LocalDateTime.now().plusHours(720)).build();
+        qrCodeRepository.saveAll(List.of(qrCode, second));
+        virtualCardQRCodeRepository.saveAll(List.of(
+                new VirtualCardQRCode(ColorBasedVirtualCard.builder().id(1L).build(), qrCode),
+                new VirtualCardQRCode(ColorBasedVirtualCard.builder().id(1L).build(), second)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) qrCodeService.getAllInfo(1L, qrCode.getId(), 1).getBody()).writeTo(out);
+
+        assertTrue(out.toString().contains("\"qrCodeURL\":\"/qr-code/get-image/" + second.getId() + "\""));
+        assertFalse(out.toString().contains("/qr-code/get-image/" + qrCode.getId() + "\""));
     }
 
     @Test
@@ -0,0 +1,65 @@
+package ru.clubcard.virtualcard.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.clubcard.virtualcard.entity.card.VirtualCardText;
+import ru.clubcard.virtualcard.entity.card.VirtualCardTextConverter;
+import ru.clubcard.virtualcard.maintenance.VirtualCardReadTableBackfill;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookup by ID through the JOINED tables against {@code virtual_card_read}, on 2 000 000 cards by default
+ * (see {@link LookupBenchmark}). Skipped unless {@code CLUBCARD_BENCHMARK=true}:
+ * <pre>CLUBCARD_BENCHMARK=true gradle test --tests '*VirtualCardLookupBenchmarkIntegrationTest'</pre>
+ */
+@SpringBootTest
+@Testcontainers
+@EnabledIfEnvironmentVariable(named = "CLUBCARD_BENCHMARK", matches = "true")
+public class VirtualCardLookupBenchmarkIntegrationTest {
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("test");
+
+    @DynamicPropertySource
+    public static void overrideProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("clubcard.virtual-card.read-table.enabled", () -> true);
+    }
+
+    @Autowired
+    private VirtualCardRepository virtualCardRepository;
+
+    @Autowired
+    private VirtualCardReadRepository virtualCardReadRepository;
+
+    @Autowired
+    private VirtualCardReadTableBackfill virtualCardReadTableBackfill;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void lookupById_Joined_Vs_Read_Table() {
+        long cards = LookupBenchmark.cards(2_000_000);
+        LookupBenchmark.seed(jdbcTemplate, cards, new VirtualCardTextConverter().convertToDatabaseColumn(new VirtualCardText(16, true, 10, 20)));
+        virtualCardReadTableBackfill.backfill();
+        jdbcTemplate.execute("VACUUM ANALYZE");
+
+        // Each findById runs outside a transaction, so nothing is served from a persistence context
+        LookupBenchmark.report("joined", cards, id -> assertTrue(virtualCardRepository.findById(id).isPresent()));
+        LookupBenchmark.report("read-table", cards, id -> assertTrue(virtualCardReadRepository.findById(id).isPresent()));
+    }
+}
@@ -0,0 +1,121 @@
+package ru.clubcard.virtualcard.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.clubcard.virtualcard.TestDataLoader;
+import ru.clubcard.virtualcard.entity.card.ColorBasedVirtualCard;
+import ru.clubcard.virtualcard.entity.card.ImageBasedVirtualCard;
+import ru.clubcard.virtualcard.entity.card.VirtualCard;
+import ru.clubcard.virtualcard.entity.card.VirtualCardType;
+import ru.clubcard.virtualcard.entity.card.dto.ImageBasedVirtualCardDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+import ru.clubcard.virtualcard.maintenance.VirtualCardReadTableBackfill;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+import ru.clubcard.virtualcard.service.VirtualCardService;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Testcontainers
+public class VirtualCardReadTableIntegrationTest {
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("test");
+
+    @DynamicPropertySource
+    public static void overrideProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("clubcard.virtual-card.read-table.enabled", () -> true);
+    }
+
+    @Autowired
+    private VirtualCardService virtualCardService;
+
+    @Autowired
+    private VirtualCardRepository virtualCardRepository;
+
+    @Autowired
+    private VirtualCardReadRepository virtualCardReadRepository;
+
+    @Autowired
+    private VirtualCardReadTableBackfill virtualCardReadTableBackfill;
+
+    @Autowired
+    private VirtualCardMapper virtualCardMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void afterEach() {
+        virtualCardRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM virtualcard.virtual_card_read");
+    }
+
+    @SneakyThrows
+    @Test
+    public void testWrites_Keep_Read_Table_In_Sync() {
+        ResponseEntity<?> created = virtualCardService.createCard(7L);
+        VirtualCardDTO card = (VirtualCardDTO) created.getBody();
+        assertInstanceOf(ColorBasedVirtualCard.class, virtualCardReadRepository.findById(card.getId()).orElseThrow());
+
+        ImageBasedVirtualCardDTO data = new ObjectMapper().readValue(
+                TestDataLoader.loadData("/test/image-based-custom.json"),
+                ImageBasedVirtualCardDTO.class);
+        data.setId(card.getId());
+        ResponseEntity<?> put = virtualCardService.putCard(data, null);
+
+        VirtualCard read = virtualCardReadRepository.findById(card.getId()).orElseThrow();
+        assertInstanceOf(ImageBasedVirtualCard.class, read);
+        assertEquals(put.getBody(), virtualCardMapper.toDTO(read));
+        assertEquals(put.getHeaders().getETag(), "\"" + read.getVersion() + "\"");
+
+        virtualCardService.deleteCard(card.getId());
+        assertTrue(virtualCardReadRepository.findById(card.getId()).isEmpty());
+    }
+
+    @Test
+    public void testSave_Does_Not_Roll_Back_Newer_Version() {
+        VirtualCardDTO card = (VirtualCardDTO) virtualCardService.createCard(7L).getBody();
+        VirtualCard stale = virtualCardRepository.findById(card.getId()).orElseThrow();
+
+        VirtualCardDTO patch = virtualCardMapper.toDTO(stale);
+        patch.setType(VirtualCardType.COLOR_BASED);
+        patch.setUserId(8L);
+        virtualCardService.patchCard(patch);
+
+        virtualCardReadRepository.save(stale);
+
+        assertEquals(8L, virtualCardReadRepository.findById(card.getId()).orElseThrow().getUserId());
+    }
+
+    @Test
+    public void testBackfill_Copies_Missing_And_Removes_Deleted() {
+        VirtualCard saved = virtualCardRepository.save(ColorBasedVirtualCard.builder()
+                .id(1L).userId(7L).textColor("black").backgroundColor("white").build());
+        jdbcTemplate.update("INSERT INTO virtualcard.virtual_card_read (id, type) VALUES (?, 0)", Long.MAX_VALUE);
+
+        virtualCardReadTableBackfill.backfill();
+
+        assertEquals(virtualCardMapper.toDTO(saved), virtualCardMapper.toDTO(virtualCardReadRepository.findById(1L).orElseThrow()));
+        assertTrue(virtualCardReadRepository.findById(Long.MAX_VALUE).isEmpty());
+        assertEquals(Map.of("count", 1L), jdbcTemplate.queryForMap("SELECT count(*) FROM virtualcard.virtual_card_read"));
+    }
+}
@@ -9,11 +9,16 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -22,14 +27,23 @@ import ru.clubcard.virtualcard.entity.card.ColorBasedVirtualCard;
 import ru.clubcard.virtualcard.entity.card.ImageBasedVirtualCard;
 import ru.clubcard.virtualcard.entity.card.dto.ImageBasedVirtualCardDTO;
 import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+import ru.clubcard.virtualcard.entity.card.CardStatus;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardSummaryPageDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardSummaryDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
 import ru.clubcard.virtualcard.repository.VirtualCardRepository;
 import ru.clubcard.virtualcard.service.VirtualCardService;
 
+import java.util.List;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @Testcontainers
 public class VirtualCardServiceIntegrationTest {
     @Container
@@ -55,6 +69,12 @@ public class VirtualCardServiceIntegrationTest {
     @Autowired
     private VirtualCardMapper virtualCardMapper;
 
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private JsonNode jsonColorBasedDefault;
     private JsonNode jsonColorBasedCustom;
     private JsonNode jsonImageBasedCustom;
@@ -108,6 +128,53 @@ public class VirtualCardServiceIntegrationTest {
         assertThat(jsonColorBasedCustom, equalTo(actual));
     }
 
+    @SneakyThrows
+    @Test
+    public void testGetCard_Not_Modified() {
+        virtualCardRepository.save(colorBasedCustom);
+
+        String eTag = mockMvc.perform(get("/virtual-card/get").param("id", colorBasedCustom.getId().toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotNull(eTag);
+        mockMvc.perform(get("/virtual-card/get").param("id", colorBasedCustom.getId().toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @SneakyThrows
+    @Test
+    public void testRenderCard_Not_Found() {
+        mockMvc.perform(get("/virtual-card/render/" + Long.MAX_VALUE).accept(MediaType.IMAGE_PNG))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testListCards_Keyset_Pages() {
+        long first = ((VirtualCardDTO) virtualCardService.createCard(42L).getBody()).getId();
+        long second = ((VirtualCardDTO) virtualCardService.createCard(42L).getBody()).getId();
+        long third = ((VirtualCardDTO) virtualCardService.createCard(42L).getBody()).getId();
+        virtualCardService.createCard(43L);
+
+        VirtualCardSummaryPageDTO page = (VirtualCardSummaryPageDTO) virtualCardService.listCards(42L, null, null, null, 2).getBody();
+        assertEquals(List.of(first, second), page.virtualCards().stream().map(VirtualCardSummaryDTO::id).toList());
+        assertEquals(second, page.nextAfterId());
+
+        page = (VirtualCardSummaryPageDTO) virtualCardService.listCards(42L, null, null, page.nextAfterId(), 2).getBody();
+        assertEquals(List.of(third), page.virtualCards().stream().map(VirtualCardSummaryDTO::id).toList());
+        assertNull(page.nextAfterId());
+
+        page = (VirtualCardSummaryPageDTO) virtualCardService.listCards(42L, CardStatus.CARD_STATUS_BLOCKED, null, null, 2).getBody();
+        assertTrue(page.virtualCards().isEmpty());
+    }
+
+    @Test
+    public void testUserIndex_Built_On_Startup() {
+        assertEquals("CREATE INDEX virtual_card_user_id_id_idx ON virtualcard.virtual_card USING btree (user_id, id)", jdbcTemplate.queryForObject(
+                "SELECT indexdef FROM pg_indexes WHERE schemaname = 'virtualcard' AND indexname = 'virtual_card_user_id_id_idx'", String.class));
+    }
+
     @Test
     public void testGetCard_Not_Found() {
         virtualCardRepository.save(colorBasedCustom);
@@ -121,18 +188,27 @@ public class VirtualCardServiceIntegrationTest {
     public void testPutCard_Successful() {
         virtualCardRepository.save(colorBasedDefault);
 
-        ResponseEntity<?> response = virtualCardService.putCard(virtualCardMapper.toDTO(colorBasedCustom));
+        ResponseEntity<?> response = virtualCardService.putCard(virtualCardMapper.toDTO(colorBasedCustom), null);
         JsonNode actual = jacksonObjectMapper.valueToTree(response.getBody());
 
         assertThat(jsonColorBasedCustom, equalTo(actual));
     }
 
+    @Test
+    public void testPutCard_Precondition_Failed() {
+        virtualCardRepository.save(colorBasedDefault);
+
+        ResponseEntity<?> response = virtualCardService.putCard(virtualCardMapper.toDTO(colorBasedCustom), "\"999\"");
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+    }
+
     @Test
     public void testPutCard_Not_Found() {
         virtualCardRepository.save(colorBasedDefault);
 
         colorBasedCustom.setId(Long.MAX_VALUE);
-        ResponseEntity<?> response = virtualCardService.putCard(virtualCardMapper.toDTO(colorBasedCustom));
+        ResponseEntity<?> response = virtualCardService.putCard(virtualCardMapper.toDTO(colorBasedCustom), null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
@@ -202,7 +278,7 @@ public class VirtualCardServiceIntegrationTest {
     public void testGetImage_Successful() {
         virtualCardRepository.save(imageBasedCustom);
 
-        ResponseEntity<?> response = virtualCardService.getImage(imageBasedCustom.getId());
+        ResponseEntity<?> response = virtualCardService.getImage(imageBasedCustom.getId(), null, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
@@ -211,7 +287,7 @@ public class VirtualCardServiceIntegrationTest {
     public void testGetImage_Not_ImageBased() {
         virtualCardRepository.save(colorBasedDefault);
 
-        ResponseEntity<?> response = virtualCardService.getImage(colorBasedDefault.getId());
+        ResponseEntity<?> response = virtualCardService.getImage(colorBasedDefault.getId(), null, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
@@ -0,0 +1,77 @@
+package ru.clubcard.virtualcard.integration;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.clubcard.virtualcard.entity.card.VirtualCardText;
+import ru.clubcard.virtualcard.entity.card.VirtualCardTextConverter;
+import ru.clubcard.virtualcard.maintenance.VirtualCardTextMigration;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Card load by ID with Java-serialized texts against the same cards after {@link VirtualCardTextMigration} packed them,
+ * on 200 000 cards by default (see {@link LookupBenchmark}). Skipped unless {@code CLUBCARD_BENCHMARK=true}:
+ * <pre>CLUBCARD_BENCHMARK=true gradle test --tests '*VirtualCardTextLoadBenchmarkIntegrationTest'</pre>
+ */
+@SpringBootTest
+@Testcontainers
+@EnabledIfEnvironmentVariable(named = "CLUBCARD_BENCHMARK", matches = "true")
+public class VirtualCardTextLoadBenchmarkIntegrationTest {
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("test");
+
+    @DynamicPropertySource
+    public static void overrideProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+    }
+
+    @Autowired
+    private VirtualCardRepository virtualCardRepository;
+
+    @Autowired
+    private VirtualCardTextMigration virtualCardTextMigration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SneakyThrows
+    @Test
+    public void loadById_Serialized_Vs_Packed_Texts() {
+        long cards = LookupBenchmark.cards(200_000);
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(text)) {
+            out.writeObject(new VirtualCardText(16, true, 10, 20));
+        }
+        LookupBenchmark.seed(jdbcTemplate, cards, text.toByteArray());
+        jdbcTemplate.execute("VACUUM ANALYZE");
+        report("serialized", cards);
+
+        virtualCardTextMigration.migrate();
+        jdbcTemplate.execute("VACUUM FULL ANALYZE virtualcard.virtual_card");
+        assertEquals(VirtualCardTextConverter.LENGTH, jdbcTemplate.queryForObject(
+                "SELECT max(octet_length(id_text)) FROM virtualcard.virtual_card", Integer.class));
+        report("packed", cards);
+    }
+
+    private void report(String name, long cards) {
+        // Each findById runs outside a transaction, so every lookup reads and converts the row again
+        LookupBenchmark.report(name, cards, id -> assertTrue(virtualCardRepository.findById(id).isPresent()));
+    }
+}
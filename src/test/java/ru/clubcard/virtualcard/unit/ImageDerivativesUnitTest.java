@@ -0,0 +1,149 @@
+package ru.clubcard.virtualcard.unit;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import ru.clubcard.virtualcard.storage.ImageDerivatives;
+import ru.clubcard.virtualcard.storage.ImageFormat;
+import ru.clubcard.virtualcard.storage.ImageStore;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ImageDerivativesUnitTest {
+    private final ImageStore imageStore = createImageStore();
+    private final ExecutorService imageDerivativePool = Executors.newSingleThreadExecutor();
+    private final ImageDerivatives imageDerivatives = new ImageDerivatives(imageStore, imageDerivativePool, 100, new int[]{1, 2, 3}, 10_000_000, 100, Duration.ofMinutes(1));
+
+    @AfterEach
+    public void afterEach() {
+        imageDerivativePool.shutdownNow();
+    }
+
+    @SneakyThrows
+    @Test
+    public void generate_All_Densities() {
+        String hash = imageStore.store(encode(image(1000, 500), "JPEG")).hash();
+
+        assertNull(imageDerivatives.select(hash, ImageFormat.JPEG, null, 2.0));
+        awaitGenerated();
+
+        for (int width : new int[]{100, 200, 300}) {
+            ImageDerivatives.Variant variant = imageDerivatives.select(hash, ImageFormat.JPEG, width, null);
+            assertNotNull(variant);
+            assertEquals(ImageFormat.JPEG, variant.format());
+
+            BufferedImage resized = ImageIO.read(variant.path().toFile());
+            assertEquals(width, resized.getWidth());
+            assertEquals(width / 2, resized.getHeight());
+        }
+
+        assertEquals(imageStore.resolveDerivative(hash, "200w.jpeg"), imageDerivatives.select(hash, ImageFormat.JPEG, null, 1.5).path());
+        assertNull(imageDerivatives.select(hash, ImageFormat.JPEG, 400, 1.0));
+        assertNull(imageDerivatives.select(hash, ImageFormat.JPEG, null, null));
+    }
+
+    @SneakyThrows
+    @Test
+    public void generate_Never_Upscales() {
+        String hash = imageStore.store(encode(image(150, 150), "PNG")).hash();
+
+        imageDerivatives.generate(hash, ImageFormat.PNG);
+        awaitGenerated();
+
+        BufferedImage largest = ImageIO.read(imageStore.resolveDerivative(hash, "300w.png").toFile());
+        assertEquals(150, largest.getWidth());
+        assertEquals(100, ImageIO.read(imageStore.resolveDerivative(hash, "100w.png").toFile()).getWidth());
+    }
+
+    @SneakyThrows
+    @Test
+    public void generate_Skips_Undecodable() {
+        String hash = imageStore.store("RIFF\0\0\0\0WEBPVP8 ".getBytes()).hash();
+
+        imageDerivatives.generate(hash, ImageFormat.WEBP);
+        awaitGenerated();
+
+        assertNull(imageDerivatives.select(hash, ImageFormat.WEBP, 100, 1.0));
+        assertEquals(false, Files.exists(imageStore.resolveDerivative(hash, "100w.png")));
+    }
+
+    @SneakyThrows
+    @Test
+    public void generate_Does_Not_Retry_Decode_Error() {
+        ExecutorService directPool = directPool();
+        ImageDerivatives derivatives = new ImageDerivatives(imageStore, directPool, 100, new int[]{1}, 10_000_000, 100, Duration.ofMinutes(1));
+        String hash = imageStore.store(Arrays.copyOf(encode(image(10, 10), "PNG"), 40)).hash();
+
+        derivatives.generate(hash, ImageFormat.PNG);
+        derivatives.generate(hash, ImageFormat.PNG);
+
+        verify(directPool, times(1)).execute(any());
+    }
+
+    @SneakyThrows
+    @Test
+    public void generate_Retries_Decode_Error_After_Ttl() {
+        ExecutorService directPool = directPool();
+        ImageDerivatives derivatives = new ImageDerivatives(imageStore, directPool, 100, new int[]{1}, 10_000_000, 100, Duration.ZERO);
+        String hash = imageStore.store(Arrays.copyOf(encode(image(10, 10), "PNG"), 40)).hash();
+
+        derivatives.generate(hash, ImageFormat.PNG);
+        derivatives.generate(hash, ImageFormat.PNG);
+
+        verify(directPool, times(2)).execute(any());
+    }
+
+    private static ExecutorService directPool() {
+        ExecutorService pool = Mockito.mock(ExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(pool).execute(any());
+        return pool;
+    }
+
+    private void awaitGenerated() throws InterruptedException {
+        imageDerivativePool.shutdown();
+        assertEquals(true, imageDerivativePool.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    private static BufferedImage image(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    @SneakyThrows
+    private static byte[] encode(BufferedImage image, String format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    @SneakyThrows
+    private static ImageStore createImageStore() {
+        return new ImageStore(Files.createTempDirectory("images"));
+    }
+}
@@ -0,0 +1,92 @@
+package ru.clubcard.virtualcard.unit;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+import ru.clubcard.virtualcard.storage.ImageStore;
+import ru.clubcard.virtualcard.storage.ImageStoreSweeper;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImageStoreSweeperUnitTest {
+    private final ImageStore imageStore = createImageStore();
+    private final VirtualCardRepository virtualCardRepository = Mockito.mock(VirtualCardRepository.class);
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+    private final ImageStoreSweeper imageStoreSweeper = new ImageStoreSweeper(imageStore, virtualCardRepository,
+            new TransactionTemplate(transactionManager));
+
+    @SneakyThrows
+    @Test
+    public void sweep_Deletes_Old_Unreferenced_Images() {
+        ReflectionTestUtils.setField(imageStoreSweeper, "enabled", true);
+        ReflectionTestUtils.setField(imageStoreSweeper, "gracePeriod", Duration.ofHours(1));
+
+        String referenced = store("GIF89a referenced", Duration.ofDays(2));
+        String unreferenced = store("GIF89a unreferenced", Duration.ofDays(2));
+        String recent = store("GIF89a recent", Duration.ofMinutes(1));
+        Files.write(imageStore.resolveDerivative(unreferenced, "400w.webp"), new byte[]{1});
+        Files.write(imageStore.resolveDerivative(referenced, "400w.webp"), new byte[]{1});
+        Mockito.when(virtualCardRepository.streamImageHashes()).thenReturn(Stream.of(referenced));
+
+        imageStoreSweeper.sweep();
+
+        assertFalse(Files.exists(imageStore.resolve(unreferenced)));
+        assertFalse(Files.exists(imageStore.resolveDerivative(unreferenced, "400w.webp")));
+        assertTrue(Files.exists(imageStore.resolve(referenced)));
+        assertTrue(Files.exists(imageStore.resolveDerivative(referenced, "400w.webp")));
+        assertTrue(Files.exists(imageStore.resolve(recent)));
+        Mockito.verify(transactionManager).commit(Mockito.any());
+    }
+
+    @SneakyThrows
+    @Test
+    public void sweep_Keeps_Images_Stored_Again() {
+        ReflectionTestUtils.setField(imageStoreSweeper, "enabled", true);
+        ReflectionTestUtils.setField(imageStoreSweeper, "gracePeriod", Duration.ofHours(1));
+
+        String hash = store("GIF89a stored again", Duration.ofDays(2));
+        imageStore.store("GIF89a stored again".getBytes(StandardCharsets.US_ASCII));
+        Mockito.when(virtualCardRepository.streamImageHashes()).thenReturn(Stream.empty());
+
+        imageStoreSweeper.sweep();
+
+        assertTrue(Files.exists(imageStore.resolve(hash)));
+    }
+
+    @SneakyThrows
+    @Test
+    public void sweep_Disabled() {
+        ReflectionTestUtils.setField(imageStoreSweeper, "enabled", false);
+
+        imageStoreSweeper.sweep();
+
+        Mockito.verifyNoInteractions(virtualCardRepository, transactionManager);
+    }
+
+    @SneakyThrows
+    private String store(String content, Duration age) {
+        String hash = imageStore.store(content.getBytes(StandardCharsets.US_ASCII)).hash();
+        Files.setLastModifiedTime(imageStore.resolve(hash), FileTime.from(Instant.now().minus(age)));
+        return hash;
+    }
+
+    @SneakyThrows
+    private static ImageStore createImageStore() {
+        Path root = Files.createTempDirectory("images");
+        return new ImageStore(root);
+    }
+}
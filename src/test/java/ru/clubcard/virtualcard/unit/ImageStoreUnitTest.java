@@ -0,0 +1,122 @@
+package ru.clubcard.virtualcard.unit;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import ru.clubcard.virtualcard.storage.ImageFormat;
+import ru.clubcard.virtualcard.storage.ImageRejectedException;
+import ru.clubcard.virtualcard.storage.ImageStore;
+import ru.clubcard.virtualcard.storage.StoredImage;
+import ru.clubcard.virtualcard.storage.StoredImageHttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ImageStoreUnitTest {
+    private static final String HASH = "9e1dc1bc886967461a907a028c1dde92f1cf63e2556120619ee83752d697d6ef";
+
+    private final Path root = createRoot();
+    private final ImageStore imageStore = createImageStore(root);
+
+    @SneakyThrows
+    @Test
+    public void store_Content_Addressed() {
+        byte[] image = "GIF89a image".getBytes(StandardCharsets.US_ASCII);
+        ImageStore.Stored stored = imageStore.store(image);
+
+        assertEquals(new ImageStore.Stored(HASH, image.length, ImageFormat.GIF), stored);
+        assertEquals(root.resolve(HASH.substring(0, 2)).resolve(HASH), imageStore.resolve(HASH));
+        assertArrayEquals(image, Files.readAllBytes(imageStore.resolve(HASH)));
+    }
+
+    @SneakyThrows
+    @Test
+    public void store_Deduplicated() {
+        ImageStore.Stored first = imageStore.store("GIF89a image".getBytes(StandardCharsets.US_ASCII));
+        ImageStore.Stored second = imageStore.store(new ByteArrayInputStream("GIF89a image".getBytes(StandardCharsets.US_ASCII)), 100);
+
+        assertEquals(first, second);
+        try (Stream<Path> files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void store_Rejected() {
+        ImageRejectedException unsupported = assertThrows(ImageRejectedException.class,
+                () -> imageStore.store("image".getBytes(StandardCharsets.US_ASCII)));
+        ImageRejectedException tooLarge = assertThrows(ImageRejectedException.class,
+                () -> imageStore.store(new ByteArrayInputStream(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0, 0, 0}), 4));
+
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, unsupported.getStatus());
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tooLarge.getStatus());
+        assertEquals(List.of(root.resolve("tmp")), listFiles());
+    }
+
+    @Test
+    public void sniffFormat() {
+        assertEquals(ImageFormat.JPEG, sniff(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}));
+        assertEquals(ImageFormat.PNG, sniff(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}));
+        assertEquals(ImageFormat.GIF, sniff("GIF87a".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(ImageFormat.WEBP, sniff("RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(sniff("RIFF\0\0\0\0WAVE".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(sniff(new byte[]{(byte) 0xFF}));
+    }
+
+    @Test
+    public void resolve_Invalid_Hash() {
+        assertThrows(IllegalArgumentException.class, () -> imageStore.resolve("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> imageStore.resolve(null));
+    }
+
+    @SneakyThrows
+    @Test
+    public void converter_Writes_File() {
+        byte[] image = new byte[100_000];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) i;
+        }
+        image[0] = (byte) 0xFF;
+        image[1] = (byte) 0xD8;
+        image[2] = (byte) 0xFF;
+        Path path = imageStore.resolve(imageStore.store(image).hash());
+
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        new StoredImageHttpMessageConverter().write(new StoredImage(path, image.length), MediaType.IMAGE_JPEG, outputMessage);
+
+        assertEquals(image.length, outputMessage.getHeaders().getContentLength());
+        assertArrayEquals(image, outputMessage.getBodyAsBytes());
+    }
+
+    private static ImageFormat sniff(byte[] head) {
+        return ImageFormat.sniff(head, head.length);
+    }
+
+    @SneakyThrows
+    private List<Path> listFiles() {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(path -> !path.equals(root)).toList();
+        }
+    }
+
+    @SneakyThrows
+    private static Path createRoot() {
+        return Files.createTempDirectory("images");
+    }
+
+    @SneakyThrows
+    private static ImageStore createImageStore(Path root) {
+        return new ImageStore(root);
+    }
+}
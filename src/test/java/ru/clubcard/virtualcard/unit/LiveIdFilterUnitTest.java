@@ -0,0 +1,49 @@
+package ru.clubcard.virtualcard.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.clubcard.virtualcard.index.LiveIdFilter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LiveIdFilterUnitTest {
+    @Test
+    public void not_Loaded_Might_Contain_Anything() {
+        assertTrue(new LiveIdFilter(true, 0.01).mightContain(42L));
+    }
+
+    @Test
+    public void no_False_Negatives() {
+        LiveIdFilter filter = new LiveIdFilter(true, 0.01);
+        LiveIdFilter.Builder builder = filter.builder(50_000, 100_001);
+        for (long id = 1; id <= 100_000; id += 2) {
+            builder.add(id);
+        }
+        filter.replaceWith(builder);
+
+        int falsePositives = 0;
+        for (long id = 1; id <= 100_000; id++) {
+            if (id % 2 == 1) {
+                assertTrue(filter.mightContain(id));
+            } else if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 49_500 * 0.02);
+    }
+
+    @Test
+    public void recent_And_Added_Ids_Might_Be_Present() {
+        LiveIdFilter filter = new LiveIdFilter(true, 0.01);
+        LiveIdFilter.Builder builder = filter.builder(10, 990L);
+        builder.add(1_000L);
+        filter.replaceWith(builder);
+
+        assertTrue(filter.mightContain(990L));
+        assertTrue(filter.mightContain(2_000L));
+        assertFalse(filter.mightContain(500L) && filter.mightContain(501L) && filter.mightContain(502L));
+
+        filter.add(500L);
+        assertTrue(filter.mightContain(500L));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.clubcard.virtualcard.unit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.clubcard.virtualcard.repository.PooledIdAllocator;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class PooledIdAllocatorUnitTest {
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+    private final PooledIdAllocator pooledIdAllocator = new PooledIdAllocator(jdbcTemplate, "virtualcard.qrcode_id_seq", 3, Duration.ofMinutes(1));
+
+    @Test
+    public void allocate_Expands_Blocks() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(3))).thenReturn(List.of(10L, 13L, 100L));
+
+        assertArrayEquals(new long[]{10L, 11L, 12L, 13L, 14L, 15L, 100L}, pooledIdAllocator.allocate(7));
+    }
+
+    @Test
+    public void next_Refills_Block() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(10L)).thenReturn(List.of(40L));
+
+        long[] ids = new long[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pooledIdAllocator.next();
+        }
+
+        assertArrayEquals(new long[]{10L, 11L, 12L, 40L, 41L}, ids);
+    }
+
+    @Test
+    public void next_Drops_Expired_Block() {
+        PooledIdAllocator expiring = new PooledIdAllocator(jdbcTemplate, "virtualcard.qrcode_id_seq", 3, Duration.ZERO);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(10L)).thenReturn(List.of(40L));
+
+        assertArrayEquals(new long[]{10L, 40L}, new long[]{expiring.next(), expiring.next()});
+    }
+}
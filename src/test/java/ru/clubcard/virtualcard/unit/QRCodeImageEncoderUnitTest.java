@@ -0,0 +1,92 @@
+package ru.clubcard.virtualcard.unit;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import ru.clubcard.virtualcard.image.QRCodeImageEncoder;
+import ru.clubcard.virtualcard.image.QRCodeImageFormat;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QRCodeImageEncoderUnitTest {
+    private final QRCodeWriter qrCodeWriter = new QRCodeWriter();
+    private final QRCodeImageEncoder qrCodeImageEncoder = new QRCodeImageEncoder();
+
+    @SneakyThrows
+    @Test
+    public void encodePNG_Matches_Matrix() {
+        BitMatrix bitMatrix = qrCodeWriter.encode("123456", BarcodeFormat.QR_CODE, 203, 203);
+
+        assertMatches(bitMatrix, qrCodeImageEncoder.encode(bitMatrix, QRCodeImageFormat.PNG));
+    }
+
+    @SneakyThrows
+    @Test
+    public void encodeBMP_Matches_Matrix() {
+        BitMatrix bitMatrix = qrCodeWriter.encode("123456", BarcodeFormat.QR_CODE, 203, 203);
+
+        assertMatches(bitMatrix, qrCodeImageEncoder.encode(bitMatrix, QRCodeImageFormat.BMP));
+    }
+
+    @SneakyThrows
+    @Test
+    public void encodeSVG_Covers_All_Modules() {
+        BitMatrix bitMatrix = qrCodeWriter.encode("123456", BarcodeFormat.QR_CODE, 0, 0);
+        String svg = new String(qrCodeImageEncoder.encode(bitMatrix, QRCodeImageFormat.SVG), StandardCharsets.US_ASCII);
+
+        int darkModules = 0;
+        for (int y = 0; y < bitMatrix.getHeight(); y++) {
+            for (int x = 0; x < bitMatrix.getWidth(); x++) {
+                darkModules += bitMatrix.get(x, y) ? 1 : 0;
+            }
+        }
+
+        int pathModules = Pattern.compile("h(\\d+)v1").matcher(svg).results()
+                .mapToInt(match -> Integer.parseInt(match.group(1)))
+                .sum();
+
+        assertTrue(svg.startsWith("<svg"));
+        assertTrue(svg.contains("viewBox=\"0 0 " + bitMatrix.getWidth() + " " + bitMatrix.getHeight() + "\""));
+        assertEquals(darkModules, pathModules);
+    }
+
+    @Test
+    public void resolveFormat() {
+        assertEquals(QRCodeImageFormat.JPEG, QRCodeImageFormat.resolve(null, null));
+        assertEquals(QRCodeImageFormat.JPEG, QRCodeImageFormat.resolve(null, "*/*"));
+        assertEquals(QRCodeImageFormat.JPEG, QRCodeImageFormat.resolve(null, "text/html, image/*;q=0.8"));
+        assertEquals(QRCodeImageFormat.PNG, QRCodeImageFormat.resolve(null, "*/*, image/png"));
+        assertEquals(QRCodeImageFormat.PNG, QRCodeImageFormat.resolve(null, "image/png"));
+        assertEquals(QRCodeImageFormat.JPEG, QRCodeImageFormat.resolve(null, "image/jpeg"));
+        assertEquals(QRCodeImageFormat.SVG, QRCodeImageFormat.resolve(null, "image/svg+xml, image/png;q=0.8"));
+        assertEquals(QRCodeImageFormat.BMP, QRCodeImageFormat.resolve(null, "image/jpeg;q=0.5, image/bmp"));
+        assertEquals(QRCodeImageFormat.BMP, QRCodeImageFormat.resolve("bmp", "image/jpeg"));
+        assertThrows(IllegalArgumentException.class, () -> QRCodeImageFormat.resolve("tiff", null));
+    }
+
+    @SneakyThrows
+    private void assertMatches(BitMatrix bitMatrix, byte[] encoded) {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(encoded));
+
+        assertNotNull(image);
+        assertEquals(bitMatrix.getWidth(), image.getWidth());
+        assertEquals(bitMatrix.getHeight(), image.getHeight());
+        for (int y = 0; y < bitMatrix.getHeight(); y++) {
+            for (int x = 0; x < bitMatrix.getWidth(); x++) {
+                int expected = bitMatrix.get(x, y) ? 0x000000 : 0xFFFFFF;
+                assertEquals(expected, image.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.clubcard.virtualcard.unit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.clubcard.virtualcard.index.QRCodeIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class QRCodeIndexUnitTest {
+    private final QRCodeIndex qrCodeIndex = new QRCodeIndex();
+
+    @Test
+    public void putGetRemove() {
+        qrCodeIndex.put(1L, 10L, 1_000L, true);
+
+        assertEquals(new QRCodeIndex.Entry(10L, 1_000L, true), qrCodeIndex.get(1L));
+
+        qrCodeIndex.remove(1L);
+        assertNull(qrCodeIndex.get(1L));
+        assertEquals(0, qrCodeIndex.size());
+    }
+
+    @Test
+    public void matchesHashMap_Random_Operations() {
+        Random random = new Random(42);
+        Map<Long, QRCodeIndex.Entry> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long qrCodeId = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(qrCodeId);
+                qrCodeIndex.remove(qrCodeId);
+            } else {
+                QRCodeIndex.Entry entry = new QRCodeIndex.Entry(random.nextInt(100), random.nextInt(1_000_000), random.nextBoolean());
+                expected.put(qrCodeId, entry);
+                qrCodeIndex.put(qrCodeId, entry.virtualCardId(), entry.expireEpochSecond(), entry.disposable());
+            }
+        }
+
+        assertEquals(expected.size(), qrCodeIndex.size());
+        for (long qrCodeId = 1; qrCodeId <= 5_000; qrCodeId++) {
+            assertEquals(expected.get(qrCodeId), qrCodeIndex.get(qrCodeId));
+        }
+    }
+
+    @Test
+    public void put_Beyond_Max_Entries() {
+        ReflectionTestUtils.setField(qrCodeIndex, "maxEntries", 2);
+        qrCodeIndex.put(1L, 10L, 1_000L, false);
+        qrCodeIndex.put(2L, 20L, 2_000L, false);
+        qrCodeIndex.put(3L, 30L, 3_000L, false);
+        qrCodeIndex.put(2L, 21L, 2_000L, true);
+
+        assertNull(qrCodeIndex.get(3L));
+        assertEquals(new QRCodeIndex.Entry(21L, 2_000L, true), qrCodeIndex.get(2L));
+        assertEquals(2, qrCodeIndex.size());
+
+        QRCodeIndex.Builder builder = qrCodeIndex.builder();
+        builder.put(4L, 40L, 4_000L, false);
+        builder.put(5L, 50L, 5_000L, false);
+        builder.put(6L, 60L, 6_000L, false);
+        qrCodeIndex.replaceWith(builder);
+
+        assertNull(qrCodeIndex.get(6L));
+        assertEquals(2, qrCodeIndex.size());
+    }
+
+    @Test
+    public void replaceWith_Builder() {
+        qrCodeIndex.put(1L, 10L, 1_000L, false);
+
+        QRCodeIndex.Builder builder = qrCodeIndex.builder();
+        builder.put(2L, 20L, 2_000L, true);
+        qrCodeIndex.replaceWith(builder);
+
+        assertNull(qrCodeIndex.get(1L));
+        assertEquals(new QRCodeIndex.Entry(20L, 2_000L, true), qrCodeIndex.get(2L));
+    }
+
+    @Test
+    public void replaceWith_Applies_Removals_During_Reload() {
+        QRCodeIndex.Builder builder = qrCodeIndex.builder();
+        builder.put(1L, 10L, 1_000L, false);
+        builder.put(2L, 20L, 2_000L, true);
+
+        qrCodeIndex.remove(1L);
+        qrCodeIndex.replaceWith(builder);
+
+        assertNull(qrCodeIndex.get(1L));
+        assertEquals(new QRCodeIndex.Entry(20L, 2_000L, true), qrCodeIndex.get(2L));
+        assertEquals(1, qrCodeIndex.size());
+    }
+}
@@ -0,0 +1,52 @@
+package ru.clubcard.virtualcard.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.clubcard.virtualcard.maintenance.QRCodePartitionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QRCodePartitionManagerUnitTest {
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+    private final QRCodePartitionManager qrCodePartitionManager = new QRCodePartitionManager(jdbcTemplate);
+
+    @BeforeEach
+    public void beforeEach() {
+        ReflectionTestUtils.setField(qrCodePartitionManager, "expireHours", 720L);
+        ReflectionTestUtils.setField(qrCodePartitionManager, "bucketDays", 7);
+        ReflectionTestUtils.setField(qrCodePartitionManager, "premakeBuckets", 2);
+    }
+
+    @Test
+    public void maintain_Creates_Ahead_And_Drops_Expired() {
+        when(jdbcTemplate.queryForList(anyString(), eq("qrcode"))).thenReturn(List.of(
+                Map.of("name", "qrcode_p20000106", "bound", "FOR VALUES FROM ('2000-01-06 00:00:00') TO ('2000-01-13 00:00:00')"),
+                Map.of("name", "qrcode_p99991230", "bound", "FOR VALUES FROM ('9999-12-30 00:00:00') TO ('9999-12-31 00:00:00')")));
+
+        qrCodePartitionManager.maintain();
+
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeastOnce()).execute(statements.capture());
+
+        List<String> creates = statements.getAllValues().stream().filter(sql -> sql.startsWith("CREATE")).toList();
+        // 720 hours span 5 or 6 weekly buckets, plus 2 premade, for both tables
+        assertTrue(creates.size() >= 2 * 7 && creates.size() <= 2 * 9);
+        assertEquals(List.of(
+                "ALTER TABLE virtualcard.qrcode DETACH PARTITION virtualcard.qrcode_p20000106 CONCURRENTLY",
+                "DROP TABLE virtualcard.qrcode_p20000106"),
+                statements.getAllValues().stream().filter(sql -> !sql.startsWith("CREATE")).toList());
+    }
+}
@@ -0,0 +1,62 @@
+package ru.clubcard.virtualcard.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.clubcard.virtualcard.cache.ImageCache;
+import ru.clubcard.virtualcard.index.QRCodeIndex;
+import ru.clubcard.virtualcard.maintenance.QRCodeReaper;
+import ru.clubcard.virtualcard.repository.QRCodeRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QRCodeReaperUnitTest {
+    private final QRCodeRepository qrCodeRepository = Mockito.mock(QRCodeRepository.class);
+    private final QRCodeIndex qrCodeIndex = new QRCodeIndex();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final QRCodeReaper qrCodeReaper = new QRCodeReaper(qrCodeRepository, qrCodeIndex, new ImageCache(1024), meterRegistry);
+
+    @BeforeEach
+    public void beforeEach() {
+        ReflectionTestUtils.setField(qrCodeReaper, "enabled", true);
+        ReflectionTestUtils.setField(qrCodeReaper, "batchSize", 2);
+        ReflectionTestUtils.setField(qrCodeReaper, "pause", Duration.ZERO);
+        ReflectionTestUtils.setField(qrCodeReaper, "maxChunks", 10);
+    }
+
+    @Test
+    public void reap_Until_Partial_Chunk() {
+        qrCodeIndex.put(1L, 10L, 0L, false);
+        when(qrCodeRepository.deleteExpired(any(), anyInt())).thenReturn(List.of(1L, 2L)).thenReturn(List.of(3L));
+
+        qrCodeReaper.reap();
+
+        verify(qrCodeRepository, times(2)).deleteExpired(any(), anyInt());
+        assertNull(qrCodeIndex.get(1L));
+        assertEquals(3.0, meterRegistry.get("clubcard.qr-code.reaper.deleted").counter().count());
+        assertEquals(2.0, meterRegistry.get("clubcard.qr-code.reaper.last-run.chunks").gauge().value());
+    }
+
+    @Test
+    public void reap_Stops_At_Max_Chunks() {
+        ReflectionTestUtils.setField(qrCodeReaper, "maxChunks", 3);
+        when(qrCodeRepository.deleteExpired(any(), anyInt())).thenReturn(List.of(1L, 2L));
+
+        qrCodeReaper.reap();
+
+        verify(qrCodeRepository, times(3)).deleteExpired(any(), anyInt());
+        assertEquals(6.0, meterRegistry.get("clubcard.qr-code.reaper.last-run.deleted").gauge().value());
+    }
+}
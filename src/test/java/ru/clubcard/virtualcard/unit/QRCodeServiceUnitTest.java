@@ -1,15 +1,27 @@
 package ru.clubcard.virtualcard.unit;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.zxing.qrcode.QRCodeWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.clubcard.virtualcard.TestDataLoader;
-import ru.clubcard.virtualcard.entity.VirtualCardQRCode;
+import ru.clubcard.virtualcard.cache.ImageCache;
+import ru.clubcard.virtualcard.cache.VirtualCardCache;
 import ru.clubcard.virtualcard.entity.card.ColorBasedVirtualCard;
 import ru.clubcard.virtualcard.entity.card.VirtualCard;
 import ru.clubcard.virtualcard.entity.card.dto.ColorBasedVirtualCardDTO;
@@ -17,18 +29,52 @@ import ru.clubcard.virtualcard.entity.card.dto.VirtualCardDTO;
 import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
 import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapperImpl;
 import ru.clubcard.virtualcard.entity.qrcode.QRCode;
+import ru.clubcard.virtualcard.entity.qrcode.QRCodeCheckStatus;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeCheckResultDTO;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeScanDTO;
+import ru.clubcard.virtualcard.image.QRCodeImageEncoder;
+import ru.clubcard.virtualcard.image.QRCodeImageFormat;
+import ru.clubcard.virtualcard.image.QRCodeRenderer;
+import ru.clubcard.virtualcard.index.LiveIdFilter;
+import ru.clubcard.virtualcard.index.QRCodeIndex;
+import ru.clubcard.virtualcard.repository.PooledIdAllocator;
+import ru.clubcard.virtualcard.repository.QRCodeBatchRepository;
+import ru.clubcard.virtualcard.repository.QRCodeInfoRepository;
 import ru.clubcard.virtualcard.repository.QRCodeRepository;
+import ru.clubcard.virtualcard.repository.RevokedQRCodeRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardQRCodeRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardRepository;
 import ru.clubcard.virtualcard.service.impl.QRCodeServiceImpl;
+import ru.clubcard.virtualcard.token.QRCodeRevocations;
+import ru.clubcard.virtualcard.token.QRCodeTokenCodec;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class QRCodeServiceUnitTest {
@@ -37,10 +83,27 @@ public class QRCodeServiceUnitTest {
     private final QRCodeRepository qrCodeRepository = Mockito.mock(QRCodeRepository.class);
     private final VirtualCardQRCodeRepository virtualCardQRCodeRepository = Mockito.mock(VirtualCardQRCodeRepository.class);
     private final VirtualCardMapper virtualCardMapper = new VirtualCardMapperImpl();
-
-    private final QRCodeServiceImpl qrCodeService = new QRCodeServiceImpl(qrCodeWriter, virtualCardRepository, qrCodeRepository, virtualCardQRCodeRepository, virtualCardMapper);
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ImageCache qrCodeImageCache = new ImageCache(1024 * 1024);
+    private final QRCodeRenderer qrCodeRenderer = new QRCodeRenderer(qrCodeWriter, new QRCodeImageEncoder());
+    private final ForkJoinPool qrCodeRenderPool = ForkJoinPool.commonPool();
+    private final QRCodeIndex qrCodeIndex = new QRCodeIndex();
+    private final RevokedQRCodeRepository revokedQRCodeRepository = Mockito.mock(RevokedQRCodeRepository.class);
+    private final QRCodeTokenCodec qrCodeTokenCodec = new QRCodeTokenCodec(true, "0123456789abcdef0123456789abcdef");
+    private final LiveIdFilter qrCodeIdFilter = new LiveIdFilter(true, 0.01);
+    private final QRCodeBatchRepository qrCodeBatchRepository = Mockito.mock(QRCodeBatchRepository.class);
+    private final PooledIdAllocator qrCodeIdAllocator = Mockito.mock(PooledIdAllocator.class);
+    private final QRCodeInfoRepository qrCodeInfoRepository = Mockito.mock(QRCodeInfoRepository.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final VirtualCardCache virtualCardCache = new VirtualCardCache(virtualCardRepository, Mockito.mock(VirtualCardReadRepository.class), virtualCardMapper, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    private final QRCodeServiceImpl qrCodeService = new QRCodeServiceImpl(qrCodeRenderer, virtualCardRepository, qrCodeRepository, virtualCardQRCodeRepository, qrCodeImageCache, qrCodeRenderPool, qrCodeIndex,
+            new QRCodeTokenCodec(false, ""), new QRCodeRevocations(revokedQRCodeRepository, new QRCodeTokenCodec(false, "")), qrCodeIdFilter,
+            qrCodeBatchRepository, qrCodeIdAllocator, virtualCardCache, qrCodeInfoRepository, transactionTemplate, objectMapper);
+    private final QRCodeServiceImpl qrCodeTokenService = new QRCodeServiceImpl(qrCodeRenderer, virtualCardRepository, qrCodeRepository, virtualCardQRCodeRepository, qrCodeImageCache, qrCodeRenderPool, qrCodeIndex,
+            qrCodeTokenCodec, new QRCodeRevocations(revokedQRCodeRepository, qrCodeTokenCodec), qrCodeIdFilter,
+            qrCodeBatchRepository, qrCodeIdAllocator, virtualCardCache, qrCodeInfoRepository, transactionTemplate, objectMapper);
 
     private QRCode qrCode;
 
@@ -55,23 +118,20 @@ public class QRCodeServiceUnitTest {
 
     @Test
     public void generateQR_Successful() {
-        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.of(new ColorBasedVirtualCard()));
-        when(qrCodeRepository.save(any())).thenAnswer(invocation -> {
-            QRCode saved = invocation.getArgument(0);
-            saved.setId(1L);
-            return saved;
-        });
+        when(virtualCardRepository.existsById(anyLong())).thenReturn(true);
+        when(qrCodeIdAllocator.next()).thenReturn(1L);
 
         ResponseEntity<?> expected = ResponseEntity.ok(Map.of("message", "QR Code generated.", "id", 1L));
         ResponseEntity<?> actual = qrCodeService.generate(2L, false);
 
         assertNotNull(actual);
         assertEquals(expected.getBody(), actual.getBody());
+        verify(qrCodeBatchRepository).insertAll(eq(new long[]{1L}), eq(new long[]{2L}), eq(false), any());
     }
 
     @Test
     public void generateQR_Not_Found() {
-        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(virtualCardRepository.existsById(anyLong())).thenReturn(false);
 
         ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
         ResponseEntity<?> actual = qrCodeService.generate(2L, false);
@@ -80,12 +140,49 @@ public class QRCodeServiceUnitTest {
         assertEquals(expected.getBody(), actual.getBody());
     }
 
+    @Test
+    public void generateBatch_Successful() {
+        ReflectionTestUtils.setField(qrCodeService, "generateBatchMaxSize", 10);
+        when(virtualCardRepository.findExistingIds(anyCollection())).thenReturn(List.of(2L, 3L));
+        when(qrCodeIdAllocator.allocate(4)).thenReturn(new long[]{50L, 51L, 52L, 53L});
+
+        ResponseEntity<?> actual = qrCodeService.generateBatch(List.of(2L, 3L, 3L), null, 2, true);
+
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+        verify(qrCodeBatchRepository).insertAll(eq(new long[]{50L, 51L, 52L, 53L}), eq(new long[]{2L, 2L, 3L, 3L}), eq(true), any());
+        assertEquals(new QRCodeIndex.Entry(3L, qrCodeIndex.get(53L).expireEpochSecond(), true), qrCodeIndex.get(53L));
+    }
+
+    @Test
+    public void generateBatch_Not_Found() {
+        ReflectionTestUtils.setField(qrCodeService, "generateBatchMaxSize", 10);
+        when(virtualCardRepository.findExistingIds(anyCollection())).thenReturn(List.of(2L));
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Virtual Card not found.", "ids", List.of(3L)), HttpStatus.NOT_FOUND);
+        ResponseEntity<?> actual = qrCodeService.generateBatch(List.of(2L, 3L), null, 1, false);
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+        verify(qrCodeBatchRepository, times(0)).insertAll(any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    public void generateBatch_Bad_Request() {
+        ReflectionTestUtils.setField(qrCodeService, "generateBatchMaxSize", 10);
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Batch must contain from 1 to 10 QR Codes."), HttpStatus.BAD_REQUEST);
+        ResponseEntity<?> actual = qrCodeService.generateBatch(null, 2L, 11, false);
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+    }
+
     @Test
     public void getQR_Successful() {
         when(qrCodeRepository.findById(anyLong())).thenReturn(Optional.ofNullable(qrCode));
 
         ResponseEntity<?> expected = ResponseEntity.ok().build();
-        ResponseEntity<?> actual = qrCodeService.get(1L);
+        ResponseEntity<?> actual = qrCodeService.get(1L, QRCodeImageFormat.PNG);
 
         assertNotNull(actual);
         assertEquals(expected.getStatusCode(), actual.getStatusCode());
@@ -96,12 +193,176 @@ public class QRCodeServiceUnitTest {
         when(qrCodeRepository.findById(eq(1L))).thenReturn(Optional.ofNullable(qrCode));
 
         ResponseEntity<?> expected = ResponseEntity.notFound().build();
-        ResponseEntity<?> actual = qrCodeService.get(2L);
+        ResponseEntity<?> actual = qrCodeService.get(2L, QRCodeImageFormat.PNG);
 
         assertNotNull(actual);
         assertEquals(expected.getStatusCode(), actual.getStatusCode());
     }
 
+    @Test
+    public void getQR_Varies_By_Accept() {
+        when(qrCodeRepository.findById(anyLong())).thenReturn(Optional.ofNullable(qrCode));
+
+        ResponseEntity<?> png = qrCodeService.get(1L, QRCodeImageFormat.PNG);
+        ResponseEntity<?> svg = qrCodeService.get(1L, QRCodeImageFormat.SVG);
+
+        assertEquals(List.of(HttpHeaders.ACCEPT), png.getHeaders().getVary());
+        assertEquals(true, png.getHeaders().getETag().endsWith(".png\""));
+        assertNotEquals(png.getHeaders().getETag(), svg.getHeaders().getETag());
+    }
+
+    @Test
+    public void getQR_Cached() {
+        when(qrCodeRepository.findById(anyLong())).thenReturn(Optional.ofNullable(qrCode));
+
+        ResponseEntity<?> first = qrCodeService.get(1L, QRCodeImageFormat.PNG);
+        ResponseEntity<?> second = qrCodeService.get(1L, QRCodeImageFormat.PNG);
+
+        assertEquals(HttpStatus.OK, second.getStatusCode());
+        assertNotNull(second.getHeaders().getETag());
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+        verify(qrCodeRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void getQR_Evicted_On_Delete() {
+        when(qrCodeRepository.findById(anyLong())).thenReturn(Optional.ofNullable(qrCode));
+
+        qrCodeService.get(1L, QRCodeImageFormat.PNG);
+        qrCodeService.delete(1L);
+        qrCodeService.get(1L, QRCodeImageFormat.PNG);
+
+        verify(qrCodeRepository, times(3)).findById(1L);
+    }
+
+    @SneakyThrows
+    @Test
+    public void getBatch_Successful() {
+        ReflectionTestUtils.setField(qrCodeService, "batchChunkSize", 2);
+        when(qrCodeRepository.findExistingIds(anyCollection())).thenAnswer(invocation -> List.copyOf(invocation.<Collection<Long>>getArgument(0)));
+
+        ResponseEntity<?> actual = qrCodeService.getBatch(List.of(1L, 2L, 3L, 3L), null, QRCodeImageFormat.PNG);
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) actual.getBody()).writeTo(out);
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+            }
+        }
+
+        assertEquals(List.of("1.png", "2.png", "3.png"), entries.stream().sorted().toList());
+    }
+
+    @SneakyThrows
+    @Test
+    public void getBatch_Lists_Failed_Renders() {
+        ReflectionTestUtils.setField(qrCodeService, "batchChunkSize", 2);
+        ReflectionTestUtils.setField(qrCodeRenderer, "width", -1);
+        when(qrCodeRepository.findExistingIds(anyCollection())).thenAnswer(invocation -> List.copyOf(invocation.<Collection<Long>>getArgument(0)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) qrCodeService.getBatch(List.of(1L, 2L), null, QRCodeImageFormat.PNG).getBody()).writeTo(out);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("failed-ids.txt", zip.getNextEntry().getName());
+            assertEquals(List.of("1", "2"), new String(zip.readAllBytes()).lines().sorted().toList());
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @SneakyThrows
+    @Test
+    public void getAllInfo_Streams_Page() {
+        when(qrCodeInfoRepository.streamByVirtualCardId(1L, 5L, 2)).thenReturn(Stream.of(
+                QRCode.builder().id(6L).isDisposable(true).expireTime(qrCode.getExpireTime()).build(),
+                QRCode.builder().id(7L).isDisposable(false).expireTime(qrCode.getExpireTime()).build()));
+
+        ResponseEntity<?> actual = qrCodeService.getAllInfo(1L, 5L, 2);
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, actual.getHeaders().getContentType());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) actual.getBody()).writeTo(out);
+
+        JsonNode qrCodes = objectMapper.readTree(out.toByteArray());
+        assertEquals(2, qrCodes.size());
+        assertEquals(6L, qrCodes.get(0).get("id").asLong());
+        assertEquals(true, qrCodes.get(0).get("disposable").asBoolean());
+        assertEquals("/qr-code/get-image/7", qrCodes.get(1).get("qrCodeURL").asText());
+        assertEquals(qrCode.getExpireTime(), LocalDateTime.parse(qrCodes.get(1).get("expireTime").asText()));
+    }
+
+    @Test
+    public void getAllInfo_Failure_Leaves_Array_Unterminated() {
+        when(qrCodeInfoRepository.streamByVirtualCardId(1L, 0L, null)).thenReturn(Stream.concat(
+                Stream.of(QRCode.builder().id(6L).isDisposable(true).expireTime(qrCode.getExpireTime()).build()),
+                Stream.<QRCode>generate(() -> {
+                    throw new DataAccessResourceFailureException("Connection lost");
+                }).limit(1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingResponseBody body = (StreamingResponseBody) qrCodeService.getAllInfo(1L, null, null).getBody();
+
+        assertThrows(DataAccessResourceFailureException.class, () -> body.writeTo(out));
+        assertThrows(JsonProcessingException.class, () -> objectMapper.readTree(out.toByteArray()));
+    }
+
+    @SneakyThrows
+    @Test
+    public void getAllInfo_Empty() {
+        when(qrCodeInfoRepository.streamByVirtualCardId(1L, 0L, null)).thenReturn(Stream.empty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) qrCodeService.getAllInfo(1L, null, null).getBody()).writeTo(out);
+
+        assertEquals("[]", out.toString());
+    }
+
+    @Test
+    public void getBatch_Bad_Request() {
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Either QR Code IDs or Virtual Card ID must be present."), HttpStatus.BAD_REQUEST);
+        ResponseEntity<?> actual = qrCodeService.getBatch(List.of(), null, QRCodeImageFormat.PNG);
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+    }
+
+    @SneakyThrows
+    @Test
+    public void getBatch_By_Virtual_Card() {
+        ReflectionTestUtils.setField(qrCodeService, "batchChunkSize", 2);
+        when(virtualCardRepository.existsById(5L)).thenReturn(true);
+        when(virtualCardQRCodeRepository.findQrCodeIdsByVirtualCardId(eq(5L), eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(virtualCardQRCodeRepository.findQrCodeIdsByVirtualCardId(eq(5L), eq(2L), any())).thenReturn(List.of(3L));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) qrCodeService.getBatch(null, 5L, QRCodeImageFormat.PNG).getBody()).writeTo(out);
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+            }
+        }
+
+        assertEquals(List.of("1.png", "2.png", "3.png"), entries.stream().sorted().toList());
+    }
+
+    @Test
+    public void getBatch_Virtual_Card_Not_Found() {
+        when(virtualCardRepository.existsById(5L)).thenReturn(false);
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
+        ResponseEntity<?> actual = qrCodeService.getBatch(null, 5L, QRCodeImageFormat.PNG);
+
+        assertEquals(expected, actual);
+        verify(virtualCardQRCodeRepository, never()).findQrCodeIdsByVirtualCardId(anyLong(), anyLong(), any());
+    }
+
     @Test
     public void getInfo_Successful() {
         when(qrCodeRepository.findById(anyLong())).thenReturn(Optional.ofNullable(qrCode));
@@ -132,9 +393,8 @@ public class QRCodeServiceUnitTest {
         VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
         VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
 
-        VirtualCardQRCode virtualCardQRCode = new VirtualCardQRCode(virtualCard, qrCode);
-
-        when(virtualCardQRCodeRepository.findByQrCode_Id(anyLong())).thenReturn(Optional.of(virtualCardQRCode));
+        when(virtualCardQRCodeRepository.findLinkByQrCodeId(anyLong())).thenReturn(Optional.of(link(virtualCard, qrCode)));
+        when(virtualCardRepository.findById(eq(virtualCard.getId()))).thenReturn(Optional.of(virtualCard));
 
         ResponseEntity<?> expected = ResponseEntity.ok(virtualCardDTO);
         ResponseEntity<?> actual = qrCodeService.check(1L);
@@ -143,9 +403,55 @@ public class QRCodeServiceUnitTest {
         assertEquals(expected.getBody(), actual.getBody());
     }
 
+    @SneakyThrows
+    @Test
+    public void checkQR_Indexed() {
+        VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
+
+        when(virtualCardQRCodeRepository.findLinkByQrCodeId(anyLong())).thenReturn(Optional.of(link(virtualCard, qrCode)));
+        when(virtualCardRepository.findById(eq(virtualCard.getId()))).thenReturn(Optional.of(virtualCard));
+        when(qrCodeRepository.existsById(1L)).thenReturn(true);
+
+        qrCodeService.check(1L);
+        ResponseEntity<?> actual = qrCodeService.check(1L);
+
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+        verify(virtualCardQRCodeRepository, times(1)).findLinkByQrCodeId(1L);
+        verify(qrCodeRepository, times(1)).existsById(1L);
+    }
+
+    @Test
+    public void checkQR_Indexed_Deleted_Elsewhere() {
+        qrCodeIndex.put(1L, 2L, Instant.now().plusSeconds(3600).getEpochSecond(), false);
+        when(qrCodeRepository.existsById(1L)).thenReturn(false);
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+        ResponseEntity<?> actual = qrCodeService.check(1L);
+
+        assertEquals(expected, actual);
+        assertNull(qrCodeIndex.get(1L));
+        verify(virtualCardRepository, times(0)).findById(anyLong());
+    }
+
+    @SneakyThrows
+    @Test
+    public void checkQR_Disposable_Consumed() {
+        VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
+
+        qrCode.setDisposable(true);
+        when(virtualCardQRCodeRepository.findLinkByQrCodeId(anyLong())).thenReturn(Optional.of(link(virtualCard, qrCode)));
+        when(virtualCardQRCodeRepository.consumeDisposable(anyLong(), any())).thenReturn(Optional.of(virtualCard.getId())).thenReturn(Optional.empty());
+        when(virtualCardRepository.findById(eq(virtualCard.getId()))).thenReturn(Optional.of(virtualCard));
+
+        assertEquals(HttpStatus.OK, qrCodeService.check(1L).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, qrCodeService.check(1L).getStatusCode());
+    }
+
     @Test
     public void checkQR_Not_Found() {
-        when(virtualCardQRCodeRepository.findByQrCode_Id(anyLong())).thenReturn(Optional.empty());
+        when(virtualCardQRCodeRepository.findLinkByQrCodeId(anyLong())).thenReturn(Optional.empty());
 
         ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
         ResponseEntity<?> actual = qrCodeService.check(1L);
@@ -154,6 +460,21 @@ public class QRCodeServiceUnitTest {
         assertEquals(expected.getBody(), actual.getBody());
     }
 
+    @Test
+    public void checkQR_Filtered_Not_Found() {
+        LiveIdFilter.Builder builder = qrCodeIdFilter.builder(10, 1000L);
+        builder.add(1L);
+        builder.add(1000L);
+        qrCodeIdFilter.replaceWith(builder);
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+        ResponseEntity<?> actual = qrCodeService.check(2L);
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+        verify(virtualCardQRCodeRepository, times(0)).findLinkByQrCodeId(anyLong());
+    }
+
     @SneakyThrows
     @Test
     public void checkQR_Expired() {
@@ -161,9 +482,8 @@ public class QRCodeServiceUnitTest {
         VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
 
         qrCode.setExpireTime(LocalDateTime.now().minusHours(3));
-        VirtualCardQRCode virtualCardQRCode = new VirtualCardQRCode(virtualCard, qrCode);
 
-        when(virtualCardQRCodeRepository.findByQrCode_Id(anyLong())).thenReturn(Optional.of(virtualCardQRCode));
+        when(virtualCardQRCodeRepository.findLinkByQrCodeId(anyLong())).thenReturn(Optional.of(link(virtualCard, qrCode)));
 
         ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "QR Code expired!"), HttpStatus.FORBIDDEN);
         ResponseEntity<?> actual = qrCodeService.check(1L);
@@ -172,6 +492,147 @@ public class QRCodeServiceUnitTest {
         assertEquals(expected.getBody(), actual.getBody());
     }
 
+    @SneakyThrows
+    @Test
+    public void checkBatch_Successful() {
+        ReflectionTestUtils.setField(qrCodeService, "checkBatchMaxSize", 10);
+        ReflectionTestUtils.setField(qrCodeService, "checkBatchMaxScanAge", Duration.ofHours(24));
+        VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
+
+        LocalDateTime now = LocalDateTime.now();
+        QRCode disposable = QRCode.builder().id(2L).isDisposable(true).expireTime(now.plusHours(1)).build();
+        QRCode expired = QRCode.builder().id(3L).isDisposable(false).expireTime(now.minusHours(1)).build();
+
+        when(virtualCardQRCodeRepository.findLinksByQrCodeIds(anyCollection()))
+                .thenReturn(List.of(link(virtualCard, qrCode), link(virtualCard, disposable), link(virtualCard, expired)));
+        when(virtualCardQRCodeRepository.consumeDisposable(anyCollection(), any())).thenReturn(List.of(2L));
+        when(virtualCardRepository.findAllById(anyIterable())).thenReturn(List.of(virtualCard));
+
+        ResponseEntity<?> actual = qrCodeService.checkBatch(List.of(
+                new QRCodeScanDTO(1L, now),
+                new QRCodeScanDTO(2L, now),
+                new QRCodeScanDTO(2L, now),
+                new QRCodeScanDTO(3L, now.minusHours(2)),
+                new QRCodeScanDTO(3L, now),
+                new QRCodeScanDTO(4L, null)));
+
+        List<QRCodeCheckResultDTO> expected = List.of(
+                new QRCodeCheckResultDTO(1L, QRCodeCheckStatus.OK, virtualCardDTO),
+                new QRCodeCheckResultDTO(2L, QRCodeCheckStatus.OK, virtualCardDTO),
+                new QRCodeCheckResultDTO(2L, QRCodeCheckStatus.ALREADY_USED, null),
+                new QRCodeCheckResultDTO(3L, QRCodeCheckStatus.OK, virtualCardDTO),
+                new QRCodeCheckResultDTO(3L, QRCodeCheckStatus.EXPIRED, null),
+                new QRCodeCheckResultDTO(4L, QRCodeCheckStatus.NOT_FOUND, null));
+
+        assertEquals(expected, actual.getBody());
+        verify(virtualCardQRCodeRepository, times(1)).consumeDisposable(anyCollection(), any());
+    }
+
+    @SneakyThrows
+    @Test
+    public void checkBatch_Old_Scan_Clamped_To_Window() {
+        ReflectionTestUtils.setField(qrCodeService, "checkBatchMaxSize", 10);
+        ReflectionTestUtils.setField(qrCodeService, "checkBatchMaxScanAge", Duration.ofMinutes(30));
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(
+                objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class));
+
+        LocalDateTime now = LocalDateTime.now();
+        QRCode expired = QRCode.builder().id(3L).isDisposable(true).expireTime(now.minusHours(1)).build();
+
+        when(virtualCardQRCodeRepository.findLinksByQrCodeIds(anyCollection())).thenReturn(List.of(link(virtualCard, expired)));
+
+        ResponseEntity<?> actual = qrCodeService.checkBatch(List.of(new QRCodeScanDTO(3L, now.minusHours(2))));
+
+        assertEquals(List.of(new QRCodeCheckResultDTO(3L, QRCodeCheckStatus.EXPIRED, null)), actual.getBody());
+        verify(virtualCardQRCodeRepository, never()).consumeDisposable(anyCollection(), any());
+    }
+
+    @Test
+    public void checkBatch_Bad_Request() {
+        ReflectionTestUtils.setField(qrCodeService, "checkBatchMaxSize", 1);
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Batch must contain from 1 to 1 scans."), HttpStatus.BAD_REQUEST);
+        ResponseEntity<?> actual = qrCodeService.checkBatch(List.of(new QRCodeScanDTO(1L, null), new QRCodeScanDTO(2L, null)));
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+    }
+
+    @SneakyThrows
+    @Test
+    public void checkToken_Successful() {
+        VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
+
+        when(virtualCardRepository.findById(eq(virtualCard.getId()))).thenReturn(Optional.of(virtualCard));
+
+        ResponseEntity<?> expected = ResponseEntity.ok(virtualCardDTO);
+        ResponseEntity<?> actual = qrCodeTokenService.checkToken(token(virtualCard, qrCode));
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+        verify(virtualCardQRCodeRepository, times(0)).findLinkByQrCodeId(anyLong());
+    }
+
+    @Test
+    public void checkToken_Tampered() {
+        String token = qrCodeTokenCodec.encode(1L, 2L, 4_000_000_000L, false);
+        String tampered = token.substring(0, 5) + (token.charAt(5) == 'A' ? 'B' : 'A') + token.substring(6);
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "QR Code not found."), HttpStatus.NOT_FOUND);
+        ResponseEntity<?> actual = qrCodeTokenService.checkToken(tampered);
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+    }
+
+    @SneakyThrows
+    @Test
+    public void checkToken_Expired() {
+        VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
+
+        qrCode.setExpireTime(LocalDateTime.now().minusHours(3));
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "QR Code expired!"), HttpStatus.FORBIDDEN);
+        ResponseEntity<?> actual = qrCodeTokenService.checkToken(token(virtualCard, qrCode));
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+    }
+
+    @SneakyThrows
+    @Test
+    public void checkToken_Revoked_On_Delete() {
+        VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
+
+        when(qrCodeRepository.findById(anyLong())).thenReturn(Optional.ofNullable(qrCode));
+        when(virtualCardRepository.findById(eq(virtualCard.getId()))).thenReturn(Optional.of(virtualCard));
+
+        String token = token(virtualCard, qrCode);
+        assertEquals(HttpStatus.OK, qrCodeTokenService.checkToken(token).getStatusCode());
+
+        qrCodeTokenService.delete(1L);
+        assertEquals(HttpStatus.NOT_FOUND, qrCodeTokenService.checkToken(token).getStatusCode());
+    }
+
+    @SneakyThrows
+    @Test
+    public void checkToken_Disposable_Consumed() {
+        VirtualCardDTO virtualCardDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        VirtualCard virtualCard = virtualCardMapper.toVirtualCard(virtualCardDTO);
+
+        qrCode.setDisposable(true);
+        when(virtualCardQRCodeRepository.consumeDisposable(anyLong(), any())).thenReturn(Optional.of(virtualCard.getId())).thenReturn(Optional.empty());
+        when(virtualCardRepository.findById(eq(virtualCard.getId()))).thenReturn(Optional.of(virtualCard));
+
+        String token = token(virtualCard, qrCode);
+        assertEquals(HttpStatus.OK, qrCodeTokenService.checkToken(token).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, qrCodeTokenService.checkToken(token).getStatusCode());
+    }
+
     @Test
     public void deleteQR_Successful() {
         when(qrCodeRepository.findById(anyLong())).thenReturn(Optional.ofNullable(qrCode));
@@ -193,4 +654,13 @@ public class QRCodeServiceUnitTest {
         assertNotNull(actual);
         assertEquals(expected.getBody(), actual.getBody());
     }
+
+    private String token(VirtualCard virtualCard, QRCode qrCode) {
+        return qrCodeTokenCodec.encode(qrCode.getId(), virtualCard.getId(),
+                qrCode.getExpireTime().atZone(ZoneId.systemDefault()).toEpochSecond(), qrCode.isDisposable());
+    }
+
+    private static QRCodeLinkDTO link(VirtualCard virtualCard, QRCode qrCode) {
+        return new QRCodeLinkDTO(qrCode.getId(), virtualCard.getId(), qrCode.getExpireTime(), qrCode.isDisposable());
+    }
 }
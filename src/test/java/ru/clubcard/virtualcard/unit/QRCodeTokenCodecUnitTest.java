@@ -0,0 +1,40 @@
+package ru.clubcard.virtualcard.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.clubcard.virtualcard.token.QRCodeToken;
+import ru.clubcard.virtualcard.token.QRCodeTokenCodec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QRCodeTokenCodecUnitTest {
+    private final QRCodeTokenCodec qrCodeTokenCodec = new QRCodeTokenCodec(true, "0123456789abcdef0123456789abcdef");
+
+    @Test
+    public void encodeDecode() {
+        String token = qrCodeTokenCodec.encode(Long.MAX_VALUE, 42L, 4_000_000_000L, true);
+
+        assertEquals(51, token.length());
+        assertEquals(new QRCodeToken(Long.MAX_VALUE, 42L, 4_000_000_000L, true), qrCodeTokenCodec.decode(token));
+    }
+
+    @Test
+    public void decode_Foreign_Secret() {
+        String token = new QRCodeTokenCodec(true, "fedcba9876543210fedcba9876543210").encode(1L, 2L, 3L, false);
+
+        assertNull(qrCodeTokenCodec.decode(token));
+    }
+
+    @Test
+    public void decode_Malformed() {
+        assertNull(qrCodeTokenCodec.decode("123"));
+        assertNull(qrCodeTokenCodec.decode("not a token!"));
+        assertNull(new QRCodeTokenCodec(false, "").decode(qrCodeTokenCodec.encode(1L, 2L, 3L, false)));
+    }
+
+    @Test
+    public void short_Secret_Rejected() {
+        assertThrows(IllegalStateException.class, () -> new QRCodeTokenCodec(true, "secret"));
+    }
+}
@@ -0,0 +1,95 @@
+package ru.clubcard.virtualcard.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import ru.clubcard.virtualcard.cache.VirtualCardCache;
+import ru.clubcard.virtualcard.entity.card.ColorBasedVirtualCard;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapperImpl;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class VirtualCardCacheUnitTest {
+    private final VirtualCardRepository virtualCardRepository = Mockito.mock(VirtualCardRepository.class);
+    private final VirtualCardReadRepository virtualCardReadRepository = Mockito.mock(VirtualCardReadRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualCardCache virtualCardCache = new VirtualCardCache(virtualCardRepository, virtualCardReadRepository, new VirtualCardMapperImpl(), 100, Duration.ofMinutes(1), meterRegistry);
+
+    @Test
+    public void get_Loads_Once_And_Records_Stats() {
+        when(virtualCardRepository.findById(1L)).thenReturn(Optional.of(card(1L)));
+
+        virtualCardCache.get(1L);
+        virtualCardCache.get(1L);
+
+        verify(virtualCardRepository, times(1)).findById(1L);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "virtual-card").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "virtual-card").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void get_Missing_Not_Cached() {
+        when(virtualCardRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertNull(virtualCardCache.get(1L));
+        assertNull(virtualCardCache.get(1L));
+
+        verify(virtualCardRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void getAll_Loads_Only_Missing() {
+        when(virtualCardRepository.findById(1L)).thenReturn(Optional.of(card(1L)));
+        when(virtualCardRepository.findAllById(any())).thenReturn(List.of(card(2L)));
+
+        virtualCardCache.get(1L);
+
+        assertEquals(Set.of(1L, 2L), virtualCardCache.getAll(Set.of(1L, 2L, 3L)).keySet());
+        verify(virtualCardRepository).findAllById(Set.of(2L, 3L));
+    }
+
+    @Test
+    public void evict_Reloads() {
+        when(virtualCardRepository.findById(1L)).thenReturn(Optional.of(card(1L)));
+
+        virtualCardCache.get(1L);
+        virtualCardCache.evict(1L);
+
+        assertEquals("3", virtualCardCache.get(1L).eTag());
+        verify(virtualCardRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void get_From_Read_Table() {
+        when(virtualCardReadRepository.isEnabled()).thenReturn(true);
+        when(virtualCardReadRepository.findById(1L)).thenReturn(Optional.of(card(1L)));
+        when(virtualCardReadRepository.findAllById(any())).thenReturn(List.of(card(2L)));
+
+        assertEquals("3", virtualCardCache.get(1L).eTag());
+        assertEquals(Set.of(2L), virtualCardCache.getAll(Set.of(2L)).keySet());
+        verify(virtualCardRepository, never()).findById(any());
+        verify(virtualCardRepository, never()).findAllById(any());
+    }
+
+    private static ColorBasedVirtualCard card(Long id) {
+        ColorBasedVirtualCard virtualCard = new ColorBasedVirtualCard();
+        virtualCard.setId(id);
+        virtualCard.setVersion(3L);
+        virtualCard.setLastModified(Instant.ofEpochMilli(1_700_000_000_000L));
+        return virtualCard;
+    }
+}
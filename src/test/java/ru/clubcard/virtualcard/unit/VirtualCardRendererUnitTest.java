@@ -0,0 +1,118 @@
+package ru.clubcard.virtualcard.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.clubcard.virtualcard.TestDataLoader;
+import ru.clubcard.virtualcard.entity.card.ColorBasedVirtualCard;
+import ru.clubcard.virtualcard.entity.card.dto.ColorBasedVirtualCardDTO;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapper;
+import ru.clubcard.virtualcard.entity.card.dto.VirtualCardMapperImpl;
+import ru.clubcard.virtualcard.image.VirtualCardImageFormat;
+import ru.clubcard.virtualcard.image.VirtualCardRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VirtualCardRendererUnitTest {
+    private final VirtualCardRenderer virtualCardRenderer = new VirtualCardRenderer(new QRCodeWriter());
+    private final VirtualCardMapper virtualCardMapper = new VirtualCardMapperImpl();
+
+    private ColorBasedVirtualCard colorBasedVirtualCard;
+
+    @SneakyThrows
+    @BeforeEach
+    public void beforeEach() {
+        colorBasedVirtualCard = virtualCardMapper.toColorBased(new ObjectMapper().readValue(
+                TestDataLoader.loadData("/test/color-based-default.json"),
+                ColorBasedVirtualCardDTO.class));
+    }
+
+    @SneakyThrows
+    @Test
+    public void render_Background_And_Text() {
+        colorBasedVirtualCard.setBackgroundColor("#336699");
+
+        BufferedImage image = read(virtualCardRenderer.render(colorBasedVirtualCard, null, null, 800, VirtualCardImageFormat.PNG));
+
+        assertEquals(800, image.getWidth());
+        assertEquals(504, image.getHeight());
+        assertEquals(0x336699, image.getRGB(0, 0) & 0xFFFFFF);
+
+        boolean hasText = false;
+        for (int x = 0; x < 800 && !hasText; x++) {
+            hasText = (image.getRGB(x, 110) & 0xFFFFFF) != 0x336699;
+        }
+        assertTrue(hasText);
+    }
+
+    @SneakyThrows
+    @Test
+    public void render_Background_Image_Covers_Card() {
+        BufferedImage background = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = background.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 10, 10);
+        graphics.dispose();
+
+        BufferedImage image = read(virtualCardRenderer.render(colorBasedVirtualCard, background, null, 400, VirtualCardImageFormat.PNG));
+
+        assertEquals(0xFF0000, image.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0xFF0000, image.getRGB(399, 251) & 0xFFFFFF);
+    }
+
+    @SneakyThrows
+    @Test
+    public void render_QR_Code_Is_Readable() {
+        BufferedImage image = read(virtualCardRenderer.render(colorBasedVirtualCard, null, "123456", 600, VirtualCardImageFormat.JPEG));
+
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        assertEquals("123456", new QRCodeReader().decode(bitmap).getText());
+    }
+
+    @SneakyThrows
+    @Test
+    public void render_Named_And_Unknown_Colors() {
+        colorBasedVirtualCard.setBackgroundColor(" Orange ");
+        assertEquals(0xFFC800, read(virtualCardRenderer.render(colorBasedVirtualCard, null, null, 200, VirtualCardImageFormat.PNG)).getRGB(0, 0) & 0xFFFFFF);
+
+        colorBasedVirtualCard.setBackgroundColor("getClass");
+        assertEquals(0xFFFFFF, read(virtualCardRenderer.render(colorBasedVirtualCard, null, null, 200, VirtualCardImageFormat.PNG)).getRGB(0, 0) & 0xFFFFFF);
+    }
+
+    @SneakyThrows
+    @Test
+    public void render_Successive_Widths() {
+        byte[] small = virtualCardRenderer.render(colorBasedVirtualCard, null, null, 200, VirtualCardImageFormat.PNG);
+        byte[] large = virtualCardRenderer.render(colorBasedVirtualCard, null, null, 400, VirtualCardImageFormat.PNG);
+
+        assertEquals(200, read(small).getWidth());
+        assertEquals(400, read(large).getWidth());
+        assertNotEquals(small.length, large.length);
+    }
+
+    @Test
+    public void resolveFormat() {
+        assertEquals(VirtualCardImageFormat.PNG, VirtualCardImageFormat.resolve(null));
+        assertEquals(VirtualCardImageFormat.JPEG, VirtualCardImageFormat.resolve("jpeg"));
+        assertThrows(IllegalArgumentException.class, () -> VirtualCardImageFormat.resolve("webp"));
+    }
+
+    @SneakyThrows
+    private static BufferedImage read(byte[] bytes) {
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+}
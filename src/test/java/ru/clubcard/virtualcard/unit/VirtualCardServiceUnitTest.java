@@ -1,6 +1,8 @@
 package ru.clubcard.virtualcard.unit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.zxing.qrcode.QRCodeWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,31 +10,84 @@ import org.mockito.Mockito;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.clubcard.virtualcard.TestDataLoader;
+import ru.clubcard.virtualcard.cache.ImageCache;
+import ru.clubcard.virtualcard.cache.VirtualCardCache;
+import ru.clubcard.virtualcard.entity.card.CardPrivilege;
+import ru.clubcard.virtualcard.entity.card.CardStatus;
 import ru.clubcard.virtualcard.entity.card.ColorBasedVirtualCard;
 import ru.clubcard.virtualcard.entity.card.ImageBasedVirtualCard;
+import ru.clubcard.virtualcard.entity.card.VirtualCardImage;
 import ru.clubcard.virtualcard.entity.card.dto.*;
+import ru.clubcard.virtualcard.entity.qrcode.dto.QRCodeLinkDTO;
+import ru.clubcard.virtualcard.image.VirtualCardRenderer;
+import ru.clubcard.virtualcard.index.LiveIdFilter;
+import ru.clubcard.virtualcard.index.QRCodeIndex;
+import ru.clubcard.virtualcard.repository.PooledIdAllocator;
+import ru.clubcard.virtualcard.repository.VirtualCardBatchRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardImageRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardQRCodeRepository;
+import ru.clubcard.virtualcard.repository.VirtualCardReadRepository;
 import ru.clubcard.virtualcard.repository.VirtualCardRepository;
 import ru.clubcard.virtualcard.service.impl.VirtualCardServiceImpl;
-
+import ru.clubcard.virtualcard.storage.ImageDerivatives;
+import ru.clubcard.virtualcard.storage.ImageStore;
+import ru.clubcard.virtualcard.storage.StoredImage;
+import ru.clubcard.virtualcard.token.QRCodeTokenCodec;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
 public class VirtualCardServiceUnitTest {
     private final VirtualCardRepository virtualCardRepository = Mockito.mock(VirtualCardRepository.class);
     private final VirtualCardMapper virtualCardMapper = new VirtualCardMapperImpl();
-
-    private final VirtualCardServiceImpl virtualCardService = new VirtualCardServiceImpl(virtualCardRepository, virtualCardMapper);
+    private final VirtualCardQRCodeRepository virtualCardQRCodeRepository = Mockito.mock(VirtualCardQRCodeRepository.class);
+    private final ImageCache qrCodeImageCache = new ImageCache(1024 * 1024);
+    private final QRCodeIndex qrCodeIndex = new QRCodeIndex();
+    private final PooledIdAllocator virtualCardIdAllocator = Mockito.mock(PooledIdAllocator.class);
+    private final VirtualCardBatchRepository virtualCardBatchRepository = Mockito.mock(VirtualCardBatchRepository.class);
+    private final ImageStore imageStore = imageStore();
+    private final VirtualCardImageRepository virtualCardImageRepository = Mockito.mock(VirtualCardImageRepository.class);
+    private final ExecutorService imageDerivativePool = Mockito.mock(ExecutorService.class);
+    private final ImageDerivatives imageDerivatives = new ImageDerivatives(imageStore, imageDerivativePool, 100, new int[]{1, 2}, 1_000_000, 100, Duration.ofMinutes(1));
+    private final ImageCache virtualCardRenderCache = new ImageCache(1024 * 1024);
+    private final VirtualCardReadRepository virtualCardReadRepository = Mockito.mock(VirtualCardReadRepository.class);
+
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+    private final VirtualCardServiceImpl virtualCardService = new VirtualCardServiceImpl(virtualCardRepository, virtualCardMapper, virtualCardQRCodeRepository, qrCodeImageCache, qrCodeIndex,
+            new LiveIdFilter(true, 0.01), virtualCardIdAllocator, virtualCardBatchRepository, imageStore, virtualCardImageRepository, imageDerivatives,
+            new VirtualCardRenderer(new QRCodeWriter()), virtualCardRenderCache, new QRCodeTokenCodec(false, ""),
+            new VirtualCardCache(virtualCardRepository, virtualCardReadRepository, virtualCardMapper, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+            virtualCardReadRepository, new TransactionTemplate(transactionManager));
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'};
+
     private ColorBasedVirtualCardDTO colorBasedVirtualCardDTO;
     private ImageBasedVirtualCardDTO imageBasedVirtualCardDTO;
     private ColorBasedVirtualCard colorBasedVirtualCard;
@@ -51,6 +106,49 @@ public class VirtualCardServiceUnitTest {
 
         colorBasedVirtualCard = virtualCardMapper.toColorBased(colorBasedVirtualCardDTO);
         imageBasedVirtualCard = virtualCardMapper.toImageBased(imageBasedVirtualCardDTO);
+
+        ReflectionTestUtils.setField(virtualCardService, "imageMaxBytes", 1024L);
+        ReflectionTestUtils.setField(virtualCardService, "renderMaxWidth", 800);
+        ReflectionTestUtils.setField(virtualCardService, "listDefaultLimit", 2);
+        ReflectionTestUtils.setField(virtualCardService, "listMaxLimit", 10);
+    }
+
+    @Test
+    public void createCard_Successful() {
+        when(virtualCardIdAllocator.next()).thenReturn(1L);
+        when(virtualCardBatchRepository.persistAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseEntity<?> actual = virtualCardService.createCard(colorBasedVirtualCardDTO.getUserId());
+
+        assertNotNull(actual);
+        ColorBasedVirtualCardDTO created = (ColorBasedVirtualCardDTO) actual.getBody();
+        assertEquals(1L, created.getId());
+        assertEquals(colorBasedVirtualCardDTO.getUserId(), created.getUserId());
+        assertEquals(colorBasedVirtualCardDTO.getStatus(), created.getStatus());
+    }
+
+    @Test
+    public void createCards_Successful() {
+        ReflectionTestUtils.setField(virtualCardService, "createBatchMaxSize", 10);
+        when(virtualCardIdAllocator.allocate(2)).thenReturn(new long[]{50L, 51L});
+
+        ResponseEntity<?> actual = virtualCardService.createCards(List.of(7L, 8L));
+
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+        verify(virtualCardBatchRepository).persistAll(argThat(virtualCards -> virtualCards.size() == 2
+                && virtualCards.get(0).getId() == 50L && virtualCards.get(0).getUserId() == 7L
+                && virtualCards.get(1).getId() == 51L && virtualCards.get(1).getUserId() == 8L));
+    }
+
+    @Test
+    public void createCards_Bad_Request() {
+        ReflectionTestUtils.setField(virtualCardService, "createBatchMaxSize", 1);
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Batch must contain from 1 to 1 User IDs."), HttpStatus.BAD_REQUEST);
+        ResponseEntity<?> actual = virtualCardService.createCards(List.of(7L, 8L));
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
     }
 
     @Test
@@ -64,6 +162,41 @@ public class VirtualCardServiceUnitTest {
         assertEquals(expected.getBody(), actual.getBody());
     }
 
+    @Test
+    public void getCard_Validators() {
+        colorBasedVirtualCard.setVersion(3L);
+        colorBasedVirtualCard.setLastModified(Instant.ofEpochMilli(1_700_000_000_123L));
+        when(virtualCardRepository.findById(eq(1L))).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
+
+        ResponseEntity<?> actual = virtualCardService.getCard(1L);
+
+        assertEquals("\"3\"", actual.getHeaders().getETag());
+        assertEquals(1_700_000_000_000L, actual.getHeaders().getLastModified());
+    }
+
+    @Test
+    public void listCards_Pages() {
+        List<VirtualCardSummaryDTO> page = List.of(
+                new VirtualCardSummaryDTO(3L, CardPrivilege.CARD_PRIVILEGE_STANDARD, CardStatus.CARD_STATUS_WORKING, 0L, null),
+                new VirtualCardSummaryDTO(8L, CardPrivilege.CARD_PRIVILEGE_STANDARD, CardStatus.CARD_STATUS_WORKING, 0L, null));
+        when(virtualCardRepository.findSummariesByUserId(eq(7L), eq(CardStatus.CARD_STATUS_WORKING), isNull(), eq(0L), any())).thenReturn(page);
+        when(virtualCardRepository.findSummariesByUserId(eq(7L), eq(CardStatus.CARD_STATUS_WORKING), isNull(), eq(8L), any())).thenReturn(List.of());
+
+        ResponseEntity<?> first = virtualCardService.listCards(7L, CardStatus.CARD_STATUS_WORKING, null, null, null);
+        ResponseEntity<?> last = virtualCardService.listCards(7L, CardStatus.CARD_STATUS_WORKING, null, 8L, null);
+
+        assertEquals(new VirtualCardSummaryPageDTO(page, 8L), first.getBody());
+        assertEquals(new VirtualCardSummaryPageDTO(List.of(), null), last.getBody());
+    }
+
+    @Test
+    public void listCards_Bad_Limit() {
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Limit must be from 1 to 10."), HttpStatus.BAD_REQUEST);
+        ResponseEntity<?> actual = virtualCardService.listCards(7L, null, null, null, 11);
+
+        assertEquals(expected, actual);
+    }
+
     @Test
     public void getCard_Not_Found() {
         when(virtualCardRepository.findById(eq(1L))).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
@@ -89,14 +222,59 @@ public class VirtualCardServiceUnitTest {
     @SneakyThrows
     @Test
     public void putCard_Successful() {
-        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
-        when(virtualCardRepository.save(any())).thenReturn(imageBasedVirtualCard);
+        colorBasedVirtualCard.setVersion(2L);
+        imageBasedVirtualCard.setVersion(3L);
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(colorBasedVirtualCard)).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
+        when(virtualCardRepository.swapToImageBased(anyLong(), eq(2L))).thenReturn(1);
+        when(virtualCardRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         ResponseEntity<?> expected = ResponseEntity.ok(imageBasedVirtualCardDTO);
-        ResponseEntity<?> actual = virtualCardService.putCard(imageBasedVirtualCardDTO);
+        ResponseEntity<?> actual = virtualCardService.putCard(imageBasedVirtualCardDTO, "\"2\"");
 
         assertNotNull(actual);
         assertEquals(expected.getBody(), actual.getBody());
+        verify(virtualCardRepository, never()).delete(any());
+    }
+
+    @SneakyThrows
+    @Test
+    public void putCard_In_Place() {
+        VirtualCardDTO colorBasedCustomDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
+        colorBasedCustomDTO.setId(colorBasedVirtualCard.getId());
+        colorBasedVirtualCard.setVersion(2L);
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
+        when(virtualCardRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseEntity<?> actual = virtualCardService.putCard(colorBasedCustomDTO, "W/\"1\", \"2\"");
+
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+        assertEquals(((ColorBasedVirtualCardDTO) colorBasedCustomDTO).getBackgroundColor(), colorBasedVirtualCard.getBackgroundColor());
+        verify(virtualCardRepository).saveAndFlush(colorBasedVirtualCard);
+        verify(virtualCardRepository, never()).swapToColorBased(anyLong(), any());
+        verify(virtualCardRepository, never()).delete(any());
+    }
+
+    @Test
+    public void putCard_Precondition_Failed() {
+        colorBasedVirtualCard.setVersion(3L);
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
+
+        ResponseEntity<?> actual = virtualCardService.putCard(colorBasedVirtualCardDTO, "\"2\"");
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, actual.getStatusCode());
+        verify(virtualCardRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void putCard_Swap_Conflict() {
+        colorBasedVirtualCard.setVersion(2L);
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
+        when(virtualCardRepository.swapToImageBased(anyLong(), any())).thenReturn(0);
+
+        ResponseEntity<?> actual = virtualCardService.putCard(imageBasedVirtualCardDTO, null);
+
+        assertEquals(HttpStatus.CONFLICT, actual.getStatusCode());
+        verify(virtualCardRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -104,7 +282,7 @@ public class VirtualCardServiceUnitTest {
         when(virtualCardRepository.findById(eq(1L))).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
 
         ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Virtual Card not found."), HttpStatus.NOT_FOUND);
-        ResponseEntity<?> actual = virtualCardService.putCard(imageBasedVirtualCardDTO);
+        ResponseEntity<?> actual = virtualCardService.putCard(imageBasedVirtualCardDTO, null);
 
         assertNotNull(actual);
         assertEquals(expected.getBody(), actual.getBody());
@@ -116,10 +294,10 @@ public class VirtualCardServiceUnitTest {
         VirtualCardDTO colorBasedCustomDTO = objectMapper.readValue(TestDataLoader.loadData("/test/color-based-custom.json"), ColorBasedVirtualCardDTO.class);
 
         when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
-        when(virtualCardRepository.save(any())).thenReturn(virtualCardMapper.toVirtualCard(colorBasedCustomDTO));
+        when(virtualCardRepository.saveAndFlush(any())).thenReturn(virtualCardMapper.toVirtualCard(colorBasedCustomDTO));
 
         ResponseEntity<?> expected = ResponseEntity.ok(colorBasedCustomDTO);
-        ResponseEntity<?> actual = virtualCardService.putCard(colorBasedCustomDTO);
+        ResponseEntity<?> actual = virtualCardService.putCard(colorBasedCustomDTO, null);
 
         assertNotNull(actual);
         assertEquals(expected.getBody(), actual.getBody());
@@ -168,19 +346,51 @@ public class VirtualCardServiceUnitTest {
         assertEquals(expected.getBody(), actual.getBody());
     }
 
+    @SneakyThrows
     @Test
     public void saveImage_Successful() {
         when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
 
         imageBasedVirtualCard.setImageURL("/virtual-card/image/get/1");
-        when(virtualCardRepository.save(any())).thenReturn(imageBasedVirtualCard);
+        when(virtualCardRepository.saveAndFlush(any())).thenReturn(imageBasedVirtualCard);
 
         imageBasedVirtualCardDTO.setImageURL("/virtual-card/image/get/1");
         ResponseEntity<?> expected = ResponseEntity.ok(imageBasedVirtualCardDTO);
-        ResponseEntity<?> actual = virtualCardService.saveImage(1L, new MockMultipartFile("test", "test".getBytes()));
+        ResponseEntity<?> actual = virtualCardService.saveImage(1L, new MockMultipartFile("test", PNG));
 
         assertNotNull(actual);
         assertEquals(expected.getBody(), actual.getBody());
+        assertEquals(imageStore.store(PNG).hash(), imageBasedVirtualCard.getImageHash());
+        assertEquals("image/png", imageBasedVirtualCard.getImageContentType());
+        verify(virtualCardImageRepository).deleteWithDataById(imageBasedVirtualCard.getId());
+        verify(transactionManager).commit(any());
+        verify(imageDerivativePool).execute(any());
+    }
+
+    @Test
+    public void uploadImage_Unsupported_Format() {
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
+
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Image must be JPEG, PNG, GIF or WEBP."), HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        ResponseEntity<?> actual = virtualCardService.uploadImage(1L, new ByteArrayInputStream("test".getBytes()));
+
+        assertNotNull(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void uploadImage_Too_Large() {
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
+
+        byte[] image = Arrays.copyOf(PNG, 1025);
+        ResponseEntity<?> expected = new ResponseEntity<>(Map.of("message", "Image must not exceed 1024 bytes."), HttpStatus.PAYLOAD_TOO_LARGE);
+        ResponseEntity<?> actual = virtualCardService.uploadImage(1L, new ByteArrayInputStream(image));
+
+        assertNotNull(actual);
+        assertEquals(expected, actual);
+        assertNull(imageBasedVirtualCard.getImageHash());
+        verify(virtualCardImageRepository, never()).deleteWithDataById(anyLong());
+        verify(transactionManager, never()).getTransaction(any());
     }
 
     @Test
@@ -198,21 +408,132 @@ public class VirtualCardServiceUnitTest {
     public void getImage_Successful() {
         when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
 
-        ResponseEntity<?> expected = ResponseEntity.ok(imageBasedVirtualCard.getImage());
-        ResponseEntity<?> actual = virtualCardService.getImage(1L);
+        when(virtualCardImageRepository.findById(anyLong())).thenReturn(Optional.of(new VirtualCardImage(1L, PNG)));
+
+        ResponseEntity<?> expected = ResponseEntity.ok(PNG);
+        ResponseEntity<?> actual = virtualCardService.getImage(1L, null, null);
 
         assertNotNull(actual);
         assertEquals(expected.getBody(), actual.getBody());
     }
 
+    @SneakyThrows
+    @Test
+    public void getImage_Stored() {
+        imageBasedVirtualCard.setImageHash(imageStore.store(PNG).hash());
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
+
+        ResponseEntity<?> expected = ResponseEntity.ok(new StoredImage(imageStore.resolve(imageBasedVirtualCard.getImageHash()), PNG.length));
+        ResponseEntity<?> actual = virtualCardService.getImage(1L, null, null);
+
+        assertNotNull(actual);
+        assertEquals(expected.getBody(), actual.getBody());
+        assertEquals("\"" + imageBasedVirtualCard.getImageHash() + "\"", actual.getHeaders().getETag());
+        assertEquals(PNG.length, ((StoredImage) actual.getBody()).contentLength());
+    }
+
+    @SneakyThrows
+    @Test
+    public void getImage_Last_Modified_Follows_Card() {
+        imageBasedVirtualCard.setImageHash(imageStore.store(PNG).hash());
+        imageBasedVirtualCard.setLastModified(Instant.now().plusSeconds(3600));
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
+
+        ResponseEntity<?> actual = virtualCardService.getImage(1L, null, null);
+
+        assertEquals(imageBasedVirtualCard.getLastModified().getEpochSecond() * 1000, actual.getHeaders().getLastModified());
+    }
+
+    @SneakyThrows
+    @Test
+    public void getImage_Variant() {
+        String hash = imageStore.store(PNG).hash();
+        imageStore.storeDerivative(hash, "100w.png", out -> out.write(PNG, 0, 8));
+        imageBasedVirtualCard.setImageHash(hash);
+        imageBasedVirtualCard.setImageContentType("image/png");
+        when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(imageBasedVirtualCard));
+
+        ResponseEntity<?> variant = virtualCardService.getImage(1L, 50, 2.0);
+        ResponseEntity<?> original = virtualCardService.getImage(1L, 1000, null);
+
+        assertEquals(new StoredImage(imageStore.resolveDerivative(hash, "100w.png"), 8), variant.getBody());
+        assertEquals(new StoredImage(imageStore.resolve(hash), PNG.length), original.getBody());
+        verify(imageDerivativePool, never()).execute(any());
+    }
+
     @Test
     public void getImage_Bad_Request() {
         when(virtualCardRepository.findById(anyLong())).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
 
         ResponseEntity<?> expected = ResponseEntity.badRequest().build();
-        ResponseEntity<?> actual = virtualCardService.getImage(1L);
+        ResponseEntity<?> actual = virtualCardService.getImage(1L, null, null);
 
         assertNotNull(actual);
         assertEquals(expected.getStatusCode(), actual.getStatusCode());
     }
+
+    @SneakyThrows
+    private static ImageStore imageStore() {
+        return new ImageStore(Files.createTempDirectory("images"));
+    }
+
+    @Test
+    public void getCard_Cached_Until_Deleted() {
+        when(virtualCardRepository.findById(eq(1L))).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
+        when(virtualCardRepository.existsById(eq(1L))).thenReturn(true);
+
+        virtualCardService.getCard(1L);
+        ResponseEntity<?> cached = virtualCardService.getCard(1L);
+
+        assertEquals(colorBasedVirtualCardDTO, cached.getBody());
+        verify(virtualCardRepository, times(1)).findById(1L);
+
+        virtualCardService.deleteCard(1L);
+        virtualCardService.getCard(1L);
+
+        verify(virtualCardRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void renderCard_Cached_Until_Patched() {
+        when(virtualCardRepository.findById(eq(1L))).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
+        when(virtualCardRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseEntity<?> first = virtualCardService.renderCard(1L, 200, null, null);
+        ResponseEntity<?> cached = virtualCardService.renderCard(1L, 200, null, null);
+
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals("image/png", first.getHeaders().getContentType().toString());
+        assertNotNull(first.getHeaders().getETag());
+        assertSame(first.getBody(), cached.getBody());
+
+        virtualCardService.patchCard(colorBasedVirtualCardDTO);
+
+        assertNotSame(first.getBody(), virtualCardService.renderCard(1L, 200, null, null).getBody());
+    }
+
+    @Test
+    public void renderCard_Bad_Width() {
+        ResponseEntity<?> expected = ResponseEntity.badRequest().build();
+        ResponseEntity<?> actual = virtualCardService.renderCard(1L, 801, "jpeg", null);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void renderCard_Unsupported_Format() {
+        assertEquals(ResponseEntity.badRequest().build(), virtualCardService.renderCard(1L, null, "webp", null));
+    }
+
+    @Test
+    public void renderCard_QR_Code_Of_Other_Card() {
+        when(virtualCardRepository.findById(eq(1L))).thenReturn(Optional.ofNullable(colorBasedVirtualCard));
+        when(virtualCardQRCodeRepository.findLinkByQrCodeId(eq(5L)))
+                .thenReturn(Optional.of(new QRCodeLinkDTO(5L, 2L, LocalDateTime.now().plusMinutes(5), false)));
+
+        ResponseEntity<?> expected = ResponseEntity.notFound().build();
+        ResponseEntity<?> actual = virtualCardService.renderCard(1L, null, null, 5L);
+
+        assertEquals(expected, actual);
+    }
 }
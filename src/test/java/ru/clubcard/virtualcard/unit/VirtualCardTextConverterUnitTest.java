@@ -0,0 +1,68 @@
+package ru.clubcard.virtualcard.unit;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import ru.clubcard.virtualcard.entity.card.VirtualCardText;
+import ru.clubcard.virtualcard.entity.card.VirtualCardTextConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VirtualCardTextConverterUnitTest {
+    private final VirtualCardTextConverter converter = new VirtualCardTextConverter();
+
+    @Test
+    public void roundTrip() {
+        VirtualCardText text = new VirtualCardText(30, true, -40, Integer.MAX_VALUE);
+
+        byte[] encoded = converter.convertToDatabaseColumn(text);
+
+        assertEquals(VirtualCardTextConverter.LENGTH, encoded.length);
+        assertFalse(VirtualCardTextConverter.isLegacy(encoded));
+        assertEquals(text, converter.convertToEntityAttribute(encoded));
+    }
+
+    @Test
+    public void nulls() {
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    public void reads_Legacy_Serialized() {
+        VirtualCardText text = new VirtualCardText(20, false, 50, -50);
+        byte[] serialized = serialize(text);
+
+        assertTrue(VirtualCardTextConverter.isLegacy(serialized));
+        assertEquals(text, converter.convertToEntityAttribute(serialized));
+    }
+
+    @Test
+    public void rejects_Other_Serialized_Classes() {
+        byte[] serialized = serialize(new ArrayList<>());
+
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute(serialized));
+    }
+
+    @Test
+    public void rejects_Unknown_Encoding() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute(new byte[]{1, 2, 3}));
+    }
+
+    @SneakyThrows
+    private static byte[] serialize(Serializable value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+}